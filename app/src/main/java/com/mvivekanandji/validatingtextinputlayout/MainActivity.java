@@ -26,8 +26,6 @@ import androidx.core.content.ContextCompat;
 
 import com.mvivekanandji.validatingtextinputlayout.databinding.ActivityMainBinding;
 
-import java.util.List;
-
 /**
  * <h1>Demo Activity to show the usage of  {@link ValidatingTextInputLayout} and
  * {@link TextInputLayoutValidator}
@@ -35,7 +33,7 @@ import java.util.List;
  * @author vivekanand
  * @version 0.1.0
  */
-public class MainActivity extends AppCompatActivity implements TextInputLayoutValidator.ValidatorListener {
+public class MainActivity extends AppCompatActivity implements FrameBatchingValidatorListener.ChangeSetListener {
 
     private ActivityMainBinding rootBinding;
     private TextInputLayoutValidator inputLayoutValidator;
@@ -47,7 +45,9 @@ public class MainActivity extends AppCompatActivity implements TextInputLayoutVa
         rootBinding = ActivityMainBinding.inflate(getLayoutInflater());
         setContentView(rootBinding.getRoot());
 
-        inputLayoutValidator = new TextInputLayoutValidator(rootBinding.getRoot(), this);
+        // the fields are restyled once per frame at most, whatever the number of keystrokes
+        inputLayoutValidator = new TextInputLayoutValidator(rootBinding.getRoot(), new FrameBatchingValidatorListener(this));
+        inputLayoutValidator.bindToLifecycle(this);
         isFirstTry = true;
 
         rootBinding.mbLogin.setOnClickListener(v -> {
@@ -63,27 +63,21 @@ public class MainActivity extends AppCompatActivity implements TextInputLayoutVa
     }
 
     @Override
-    public void onValidateErrors(@NonNull List<ValidatingTextInputLayout> errorLayoutList, @NonNull List<TextInputLayoutValidator.ValidationError> validationErrorList) {
-
-    }
-
-    @Override
-    public void onError(@NonNull ValidatingTextInputLayout inputLayout, @NonNull TextInputLayoutValidator.ValidationError validationError, boolean isErrorOnValidate) {
-        rootBinding.mbLogin.setEnabled(false);
-        inputLayout.setStartIconTintList(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.danger)));
-        inputLayout.setDefaultHintTextColor(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.danger)));
-
-    }
-
-    @Override
-    public void onErrorResolved(@NonNull ValidatingTextInputLayout inputLayout) {
-        inputLayout.setStartIconTintList(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.colorPrimary)));
-        inputLayout.setDefaultHintTextColor(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.colorPrimaryVariant)));
-
-    }
-
-    @Override
-    public void onSuccess() {
-        rootBinding.mbLogin.setEnabled(true);
+    public void onValidationChanged(@NonNull FrameBatchingValidatorListener.ValidationChangeSet changeSet) {
+        if (!changeSet.getErrorLayouts().isEmpty())
+            rootBinding.mbLogin.setEnabled(false);
+
+        for (ValidatingTextInputLayout inputLayout : changeSet.getErrorLayouts()) {
+            inputLayout.setStartIconTintList(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.danger)));
+            inputLayout.setDefaultHintTextColor(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.danger)));
+        }
+
+        for (ValidatingTextInputLayout inputLayout : changeSet.getResolvedLayouts()) {
+            inputLayout.setStartIconTintList(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.colorPrimary)));
+            inputLayout.setDefaultHintTextColor(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.colorPrimaryVariant)));
+        }
+
+        if (changeSet.isSuccess())
+            rootBinding.mbLogin.setEnabled(true);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+import com.mvivekanandji.validatingtextinputlayout.ValidatingTextInputLayout.ValidationType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Cost of validating a whole form of 10, 100 and 1000 fields</h1>
+ * <p>
+ * Runs the rule chain of every field through {@link ValidationEngine}, which is what
+ * TextInputLayoutValidator.validate() evaluates per field, without the view work around it.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormValidationBenchmark {
+
+    private static final ValidationType[] TYPES = {ValidationType.ALPHA, ValidationType.NUMERIC,
+            ValidationType.ALPHA_NUMERIC, ValidationType.EMAIL, ValidationType.IP};
+
+    @Param({"10", "100", "1000"})
+    public int fieldCount;
+
+    private ValidationEngine engine;
+    private CharSequence[] record;
+
+    @Setup
+    public void setUp() {
+        ValidationEngine.Builder builder = ValidationEngine.builder();
+        record = new CharSequence[fieldCount];
+
+        for (int i = 0; i < fieldCount; i++) {
+            ValidationType validationType = TYPES[i % TYPES.length];
+            builder.addField("field" + i, ValidationRules.builder()
+                    .setRequired(true)
+                    .setMinLength(3)
+                    .setMaxLength(64)
+                    .setValidationType(validationType)
+                    .build());
+            record[i] = new StringBuilder(ValidationTypeBenchmark.sampleText(validationType));
+        }
+        engine = builder.build();
+    }
+
+    @Benchmark
+    public ValidationError[] validate() {
+        return engine.validate(record);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return engine.isValid(record);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Per keystroke cost of a custom validationRegex of growing complexity</h1>
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationRegexBenchmark {
+
+    @Param({"simple", "medium", "complex"})
+    public String complexity;
+
+    private ValidationRules rules;
+    private String regex;
+    private StringBuilder text;
+
+    @Setup
+    public void setUp() {
+        switch (complexity) {
+            case "simple":
+                regex = "[a-z]+";
+                text = new StringBuilder("validation");
+                break;
+            case "medium":
+                regex = "^[A-Z][a-z]+( [A-Z][a-z]+)*$";
+                text = new StringBuilder("Augusta Ada King");
+                break;
+            default:
+                regex = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=!])(?=\\S+$).{8,}$";
+                text = new StringBuilder("Str0ng!Passw0rd");
+                break;
+        }
+        rules = ValidationRules.builder().setValidationRegex(regex).build();
+    }
+
+    @Benchmark
+    public ValidationError cachedMatcher() {
+        return ValidationEngine.evaluate(rules, text);
+    }
+
+    @Benchmark
+    public boolean stringMatches() {
+        return text.toString().matches(regex);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+import com.mvivekanandji.validatingtextinputlayout.ValidatingTextInputLayout.ValidationType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Per keystroke cost of every built-in {@link ValidationType}</h1>
+ * <p>
+ * The text is a {@link StringBuilder}, standing in for the {@link android.text.Editable} handed
+ * to afterTextChanged. stringMatches is the String.matches() path the library used before the
+ * hand-written matchers, kept as the reference.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationTypeBenchmark {
+
+    // a String, as the generated code cannot name ValidationType without the material classes
+    @Param({"ALPHA", "ALPHA_WITH_SYMBOL", "NUMERIC", "NUMERIC_WITH_SYMBOL", "ALPHA_NUMERIC",
+            "ALPHA_NUMERIC_WITH_SYMBOL", "EMAIL", "IP"})
+    public String validationTypeName;
+
+    private ValidationRules rules;
+    private String regex;
+    private StringBuilder text;
+
+    @Setup
+    public void setUp() {
+        ValidationType validationType = ValidationType.valueOf(validationTypeName);
+        rules = ValidationRules.builder().setValidationType(validationType).build();
+        regex = ValidationTypeMatchers.getRegex(validationType);
+        text = new StringBuilder(sampleText(validationType));
+    }
+
+    static String sampleText(ValidationType validationType) {
+        switch (validationType) {
+            case ALPHA:
+                return "Lovelace";
+            case ALPHA_WITH_SYMBOL:
+                return "O'Brien-Smith";
+            case NUMERIC:
+                return "9876543210";
+            case NUMERIC_WITH_SYMBOL:
+                return "+91-98765-43210";
+            case ALPHA_NUMERIC:
+                return "User2021";
+            case ALPHA_NUMERIC_WITH_SYMBOL:
+                return "P@ssw0rd!";
+            case EMAIL:
+                return "first.last@mail.example.com";
+            case IP:
+                return "192.168.100.254";
+            default:
+                return "";
+        }
+    }
+
+    @Benchmark
+    public ValidationError matcher() {
+        return ValidationEngine.evaluate(rules, text);
+    }
+
+    @Benchmark
+    public boolean stringMatches() {
+        return text.toString().matches(regex);
+    }
+}
@@ -0,0 +1,4 @@
+# registry of the generated validationRegex matchers, looked up by name
+-keep class com.mvivekanandji.validatingtextinputlayout.GeneratedValidationMatchers {
+    <init>();
+}
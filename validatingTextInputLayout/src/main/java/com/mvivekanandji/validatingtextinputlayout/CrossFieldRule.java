@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+
+import java.util.Comparator;
+
+/**
+ * <h1>Rule of a field which depends on the text of other fields</h1>
+ * <p>
+ * Declared on a {@link TextInputLayoutValidator} with
+ * {@link TextInputLayoutValidator#addCrossFieldRule(ValidatingTextInputLayout, CrossFieldRule, String, ValidatingTextInputLayout...)},
+ * which checks it only once the field and all of its dependencies pass their own rules, and
+ * checks it again whenever one of the dependencies changes.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+public interface CrossFieldRule {
+
+    /**
+     * @param text            text of the field the rule is declared on
+     * @param dependencyTexts texts of the dependencies, in the order they were declared
+     * @return true if the text satisfies the rule
+     */
+    boolean isSatisfied(@NonNull final CharSequence text, @NonNull final CharSequence[] dependencyTexts);
+
+    /**
+     * @return rule satisfied if the text equals the text of the single dependency, e.g. for a
+     * confirm password field
+     */
+    @NonNull
+    static CrossFieldRule matching() {
+        return (text, dependencyTexts) -> {
+            CharSequence dependencyText = dependencyTexts[0];
+            if (text.length() != dependencyText.length())
+                return false;
+
+            for (int i = 0; i < text.length(); i++)
+                if (text.charAt(i) != dependencyText.charAt(i))
+                    return false;
+
+            return true;
+        };
+    }
+
+    /**
+     * @return rule satisfied if the text is set, or if none of the dependencies is set
+     */
+    @NonNull
+    static CrossFieldRule requiredIfAnySet() {
+        return (text, dependencyTexts) -> {
+            if (text.length() > 0)
+                return true;
+
+            for (CharSequence dependencyText : dependencyTexts)
+                if (dependencyText.length() > 0)
+                    return false;
+
+            return true;
+        };
+    }
+
+    /**
+     * @param comparator order of the texts, e.g. comparing the dates they hold
+     * @return rule satisfied if the text is not ordered before the text of the single dependency,
+     * e.g. for an end date which may not precede the start date
+     */
+    @NonNull
+    static CrossFieldRule notBefore(@NonNull final Comparator<CharSequence> comparator) {
+        return (text, dependencyTexts) -> comparator.compare(text, dependencyTexts[0]) >= 0;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * <h1>{@link TextInputLayoutValidator.ValidatorListener} delivering the changes of a frame at
+ * once</h1>
+ * <p>
+ * Collects the callbacks of the validator until the next frame, then delivers a single
+ * {@link ValidationChangeSet} holding the net change of every field since the previous delivery.
+ * A field flipping from error to resolved and back within the frame, as it may on every
+ * keystroke, is reported once with its final error, or not at all if its error ends up
+ * unchanged. Listeners restyling views thus invalidate them at most once per frame.
+ * <p>
+ * Pass it to the validator in place of the listener, on the main thread:
+ * <pre>
+ * new TextInputLayoutValidator(rootView, new FrameBatchingValidatorListener(changeSet -&gt; { ... }));
+ * </pre>
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+public class FrameBatchingValidatorListener implements TextInputLayoutValidator.ValidatorListener,
+        Choreographer.FrameCallback {
+
+    public interface ChangeSetListener {
+        /**
+         * @param changeSet changes of the frame, reused for the next frames so only valid during
+         *                  the call
+         */
+        void onValidationChanged(@NonNull final ValidationChangeSet changeSet);
+    }
+
+    /**
+     * Net changes of the fields and of the form within a frame.
+     */
+    public static final class ValidationChangeSet {
+        private final List<ValidatingTextInputLayout> errorLayouts = new ArrayList<>();
+        private final List<ValidationError> validationErrors = new ArrayList<>();
+        private final List<ValidatingTextInputLayout> resolvedLayouts = new ArrayList<>();
+        private final List<ValidatingTextInputLayout> validateErrorLayouts = new ArrayList<>();
+        private final List<ValidationError> validateErrors = new ArrayList<>();
+        private boolean isValidated;
+        private boolean isSuccess;
+
+        /**
+         * @return layouts which went into error or whose error changed, in the order of their
+         * first callback within the frame
+         */
+        @NonNull
+        public List<ValidatingTextInputLayout> getErrorLayouts() {
+            return Collections.unmodifiableList(errorLayouts);
+        }
+
+        /**
+         * @return errors of the {@link #getErrorLayouts()}, at the same positions
+         */
+        @NonNull
+        public List<ValidationError> getValidationErrors() {
+            return Collections.unmodifiableList(validationErrors);
+        }
+
+        /**
+         * @return layouts whose error was resolved
+         */
+        @NonNull
+        public List<ValidatingTextInputLayout> getResolvedLayouts() {
+            return Collections.unmodifiableList(resolvedLayouts);
+        }
+
+        /**
+         * @return true if a validation of the whole form found errors within the frame
+         */
+        public boolean isValidated() {
+            return isValidated;
+        }
+
+        /**
+         * @return every layout in error found by the last validation of the whole form within the
+         * frame, whether or not its error changed, as reported by
+         * {@link TextInputLayoutValidator.ValidatorListener#onValidateErrors(List, List)}
+         */
+        @NonNull
+        public List<ValidatingTextInputLayout> getValidateErrorLayouts() {
+            return Collections.unmodifiableList(validateErrorLayouts);
+        }
+
+        /**
+         * @return errors of the {@link #getValidateErrorLayouts()}, at the same positions
+         */
+        @NonNull
+        public List<ValidationError> getValidateErrors() {
+            return Collections.unmodifiableList(validateErrors);
+        }
+
+        /**
+         * @return true if the form was reported valid and stayed so until the end of the frame
+         */
+        public boolean isSuccess() {
+            return isSuccess;
+        }
+
+        boolean isEmpty() {
+            return errorLayouts.isEmpty() && resolvedLayouts.isEmpty() && !isValidated && !isSuccess;
+        }
+
+        void clear() {
+            errorLayouts.clear();
+            validationErrors.clear();
+            resolvedLayouts.clear();
+            validateErrorLayouts.clear();
+            validateErrors.clear();
+            isValidated = false;
+            isSuccess = false;
+        }
+    }
+
+    private final ChangeSetListener changeSetListener;
+    private final ValidationChangeSet changeSet;
+
+    // last state of the fields within the frame, null for resolved, in the order of their first change
+    private final Map<ValidatingTextInputLayout, ValidationError> pendingErrors;
+    // errors delivered to the listener and not resolved since, weakly held as layouts may go away
+    private final Map<ValidatingTextInputLayout, ValidationError> deliveredErrors;
+    private final List<ValidatingTextInputLayout> pendingValidateErrorLayouts;
+    private final List<ValidationError> pendingValidateErrors;
+    private boolean isValidatedPending;
+    private boolean isSuccessPending;
+    private boolean isFrameScheduled;
+    private boolean isDispatching;
+    private Choreographer choreographer;
+
+    public FrameBatchingValidatorListener(@NonNull final ChangeSetListener changeSetListener) {
+        this.changeSetListener = changeSetListener;
+        this.changeSet = new ValidationChangeSet();
+        this.pendingErrors = new LinkedHashMap<>();
+        this.deliveredErrors = new WeakHashMap<>();
+        this.pendingValidateErrorLayouts = new ArrayList<>();
+        this.pendingValidateErrors = new ArrayList<>();
+    }
+
+    @Override
+    public void onValidateErrors(@NonNull final List<ValidatingTextInputLayout> errorLayoutList,
+                                 @NonNull final List<ValidationError> validationErrorList) {
+        pendingValidateErrorLayouts.clear();
+        pendingValidateErrorLayouts.addAll(errorLayoutList);
+        pendingValidateErrors.clear();
+        pendingValidateErrors.addAll(validationErrorList);
+        isValidatedPending = true;
+        isSuccessPending = false;
+        scheduleFrame();
+    }
+
+    @Override
+    public void onError(@NonNull final ValidatingTextInputLayout inputLayout,
+                        @NonNull final ValidationError validationError,
+                        final boolean isErrorOnValidate) {
+        pendingErrors.put(inputLayout, validationError);
+        isSuccessPending = false;
+        scheduleFrame();
+    }
+
+    @Override
+    public void onErrorResolved(@NonNull final ValidatingTextInputLayout inputLayout) {
+        pendingErrors.put(inputLayout, null);
+        scheduleFrame();
+    }
+
+    @Override
+    public void onSuccess() {
+        isSuccessPending = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public void doFrame(final long frameTimeNanos) {
+        isFrameScheduled = false;
+        dispatch();
+    }
+
+    /**
+     * Delivers the changes collected so far without waiting for the next frame, e.g. right before
+     * acting on the state of the form. Changes made while the change set is being delivered are
+     * left for the next frame.
+     */
+    public void flush() {
+        if (isDispatching)
+            return;
+
+        if (isFrameScheduled) {
+            choreographer.removeFrameCallback(this);
+            isFrameScheduled = false;
+        }
+        dispatch();
+    }
+
+    private void scheduleFrame() {
+        if (isFrameScheduled)
+            return;
+
+        if (choreographer == null)
+            choreographer = Choreographer.getInstance();
+        choreographer.postFrameCallback(this);
+        isFrameScheduled = true;
+    }
+
+    private void dispatch() {
+        for (Map.Entry<ValidatingTextInputLayout, ValidationError> entry : pendingErrors.entrySet()) {
+            ValidatingTextInputLayout inputLayout = entry.getKey();
+            ValidationError validationError = entry.getValue();
+            // the flips in between cancel out
+            if (validationError == deliveredErrors.get(inputLayout))
+                continue;
+
+            if (validationError == null) {
+                deliveredErrors.remove(inputLayout);
+                changeSet.resolvedLayouts.add(inputLayout);
+            } else {
+                deliveredErrors.put(inputLayout, validationError);
+                changeSet.errorLayouts.add(inputLayout);
+                changeSet.validationErrors.add(validationError);
+            }
+        }
+        pendingErrors.clear();
+
+        changeSet.validateErrorLayouts.addAll(pendingValidateErrorLayouts);
+        changeSet.validateErrors.addAll(pendingValidateErrors);
+        changeSet.isValidated = isValidatedPending;
+        changeSet.isSuccess = isSuccessPending;
+        pendingValidateErrorLayouts.clear();
+        pendingValidateErrors.clear();
+        isValidatedPending = false;
+        isSuccessPending = false;
+
+        // a listener validating again collects into the pending state for the next frame
+        if (!changeSet.isEmpty()) {
+            isDispatching = true;
+            try {
+                changeSetListener.onValidationChanged(changeSet);
+            } finally {
+                isDispatching = false;
+            }
+        }
+        changeSet.clear();
+    }
+}
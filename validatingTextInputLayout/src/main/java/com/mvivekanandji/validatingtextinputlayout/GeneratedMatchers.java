@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * <h1>Lookup of the matchers generated at build time by {@link ValidationMatcherGenerator}</h1>
+ * <p>
+ * The registry is generated into the app, so it is looked up by name once, on the first
+ * validationRegex compiled. Without it every pattern is left to {@link RegexMatcher}.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+final class GeneratedMatchers {
+
+    static final String REGISTRY_CLASS_NAME =
+            ValidationMatcherGenerator.PACKAGE_NAME + "." + ValidationMatcherGenerator.REGISTRY_SIMPLE_NAME;
+
+    private static final String TAG = "GeneratedMatchers";
+
+    private GeneratedMatchers() {
+    }
+
+    /**
+     * @return the matcher generated for the pattern, null if none was
+     */
+    @Nullable
+    static TextMatcher get(@NonNull final String regex) {
+        Registry registry = RegistryHolder.REGISTRY;
+        return registry != null ? registry.getMatcher(regex) : null;
+    }
+
+    @Nullable
+    private static Registry loadRegistry() {
+        try {
+            return (Registry) Class.forName(REGISTRY_CLASS_NAME).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            Log.w(TAG, "Cannot instantiate " + REGISTRY_CLASS_NAME, e);
+            return null;
+        }
+    }
+
+    /**
+     * Implemented by the generated registry, mapping each pattern to its matcher. Public so that
+     * the registry may be loaded by another class loader than the library, e.g. in a feature
+     * module.
+     */
+    public interface Registry {
+        @Nullable
+        TextMatcher getMatcher(@NonNull String regex);
+    }
+
+    // loaded with the first lookup only
+    private static final class RegistryHolder {
+        static final Registry REGISTRY = loadRegistry();
+    }
+}
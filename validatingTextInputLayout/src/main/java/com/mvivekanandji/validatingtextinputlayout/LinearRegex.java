@@ -0,0 +1,1309 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * <h1>Linear time full match of the regular subset of {@link java.util.regex.Pattern}</h1>
+ * <p>
+ * Compiles literals, character classes, the predefined and POSIX classes, dot, anchors, groups,
+ * alternation and greedy or lazy quantifiers into a program simulated as a Thompson NFA, so that
+ * matching costs at most the program size per character whatever the pattern. Accepts exactly the
+ * texts {@link java.util.regex.Matcher#matches()} accepts for the same pattern. Patterns using
+ * anything else, e.g. backreferences, lookaround, flags, possessive quantifiers or anchors within
+ * a quantified construct, are not compiled.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+final class LinearRegex {
+
+    // large counted repetitions are expanded, beyond this size the pattern is left to java.util.regex
+    private static final int MAX_PROGRAM_SIZE = 4096;
+    private static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+
+    private static final byte OP_CHAR = 0;
+    private static final byte OP_SET = 1;
+    private static final byte OP_SPLIT = 2;
+    private static final byte OP_JUMP = 3;
+    private static final byte OP_BEGIN = 4;
+    private static final byte OP_END = 5;
+    private static final byte OP_MATCH = 6;
+
+    private final byte[] ops;
+    private final int[] args;
+    private final int[] splitArgs;
+    private final int[][] sets;
+
+    private LinearRegex(@NonNull final Program program) {
+        int size = program.ops.size();
+        ops = new byte[size];
+        args = new int[size];
+        splitArgs = new int[size];
+        for (int i = 0; i < size; i++) {
+            ops[i] = program.ops.get(i);
+            args[i] = program.args.get(i);
+            splitArgs[i] = program.splitArgs.get(i);
+        }
+        sets = program.sets.toArray(new int[0][]);
+    }
+
+    /**
+     * @param regex pattern already accepted by {@link java.util.regex.Pattern#compile(String)}
+     * @return the compiled pattern, or null if it uses constructs outside the supported subset
+     */
+    @Nullable
+    static LinearRegex compile(@NonNull final String regex) {
+        try {
+            Node node = new Parser(regex).parse();
+            Program program = new Program();
+            node.emit(program);
+            program.add(OP_MATCH, 0, 0);
+            return new LinearRegex(program);
+        } catch (UnsupportedPatternException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Looks for the constructs which make a backtracking engine take exponential time on some
+     * inputs: a repeated group which is itself an undelimited repetition or a choice between
+     * texts, e.g. {@code (a+)+} or {@code (a|ab)*}, and constructs outside the linear subset.
+     *
+     * @return description of the first hazard found, null if the pattern has none
+     */
+    @Nullable
+    static String findHazard(@NonNull final String regex) {
+        try {
+            return new Parser(regex).parse().findHazard();
+        } catch (UnsupportedPatternException e) {
+            return "cannot be matched in linear time: " + e.getMessage();
+        }
+    }
+
+    /**
+     * @param characterClass a single character class in the regex syntax, e.g. {@code [0-9a-fA-F]},
+     *                       {@code \p{Alpha}} or {@code [^\s]}
+     * @return code points of the class as sorted, disjoint first/last pairs, or null if the class
+     * uses constructs outside the supported subset or is not a single character
+     */
+    @Nullable
+    static int[] parseCharacterClass(@NonNull final String characterClass) {
+        try {
+            Node node = new Parser(characterClass).parse();
+            return node.isSingleCharacter() ? node.getRanges() : null;
+        } catch (UnsupportedPatternException e) {
+            return null;
+        }
+    }
+
+    @NonNull
+    State newState() {
+        return new State(ops.length);
+    }
+
+    /**
+     * @param stepBudget maximum number of NFA steps, 0 or less for no limit
+     * @param state      scratch space of the calling thread, from {@link #newState()}
+     * @return {@link RegexMatcher#MATCH}, {@link RegexMatcher#NO_MATCH} or
+     * {@link RegexMatcher#BUDGET_EXCEEDED}
+     */
+    int match(@NonNull final CharSequence text, final int stepBudget, @NonNull final State state) {
+        final int length = text.length();
+        final long budget = stepBudget > 0 ? stepBudget : Long.MAX_VALUE;
+        ThreadList current = state.current;
+        ThreadList next = state.next;
+        state.steps = 0;
+
+        current.clear();
+        if (!addThread(current, 0, text, 0, state, budget))
+            return RegexMatcher.BUDGET_EXCEEDED;
+
+        int position = 0;
+        while (position < length) {
+            if (current.size == 0)
+                return RegexMatcher.NO_MATCH;
+
+            int codePoint = Character.codePointAt(text, position);
+            int nextPosition = position + Character.charCount(codePoint);
+
+            next.clear();
+            for (int i = 0; i < current.size; i++) {
+                int pc = current.dense[i];
+                if ((ops[pc] == OP_CHAR && args[pc] == codePoint) || (ops[pc] == OP_SET && contains(sets[args[pc]], codePoint))) {
+                    if (!addThread(next, pc + 1, text, nextPosition, state, budget))
+                        return RegexMatcher.BUDGET_EXCEEDED;
+                }
+            }
+
+            ThreadList swap = current;
+            current = next;
+            next = swap;
+            position = nextPosition;
+        }
+
+        for (int i = 0; i < current.size; i++)
+            if (ops[current.dense[i]] == OP_MATCH)
+                return RegexMatcher.MATCH;
+
+        return RegexMatcher.NO_MATCH;
+    }
+
+    /**
+     * Adds the thread and every thread reachable from it without consuming a character.
+     *
+     * @return false if the step budget ran out
+     */
+    private boolean addThread(@NonNull final ThreadList list, final int startPc, @NonNull final CharSequence text,
+                              final int position, @NonNull final State state, final long budget) {
+        int[] stack = state.stack;
+        int top = 0;
+        stack[top++] = startPc;
+
+        while (top > 0) {
+            int pc = stack[--top];
+            if (list.contains(pc))
+                continue;
+
+            if (++state.steps > budget)
+                return false;
+
+            list.add(pc);
+            switch (ops[pc]) {
+                case OP_JUMP:
+                    stack[top++] = args[pc];
+                    break;
+                case OP_SPLIT:
+                    stack[top++] = splitArgs[pc];
+                    stack[top++] = args[pc];
+                    break;
+                case OP_BEGIN:
+                    if (position == 0)
+                        stack[top++] = pc + 1;
+                    break;
+                case OP_END:
+                    if (isEnd(text, position))
+                        stack[top++] = pc + 1;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the deterministic automaton accepting the same texts, so that a pattern known ahead
+     * of time is matched by a single transition per character.
+     *
+     * @param maxStates largest number of states of the automaton
+     * @return the automaton, null if it needs more states or a {@code $} of the pattern is
+     * followed by characters to match
+     */
+    @Nullable
+    Dfa toDfa(final int maxStates) {
+        int[] intervals = getIntervals();
+        List<int[]> stateThreads = new ArrayList<>();
+        Map<String, Integer> stateIndexes = new HashMap<>();
+        List<int[]> transitions = new ArrayList<>();
+
+        int[] startThreads = closure(new int[]{0}, true);
+        if (startThreads == null)
+            return null;
+        stateThreads.add(startThreads);
+        stateIndexes.put(Arrays.toString(startThreads), 0);
+
+        int[] nextPcs = new int[ops.length];
+        for (int state = 0; state < stateThreads.size(); state++) {
+            int[] threads = stateThreads.get(state);
+            int[] stateTransitions = new int[intervals.length * 3];
+            int size = 0;
+
+            for (int i = 0; i < intervals.length; i++) {
+                // no character test of the program tells the code points of an interval apart
+                int first = intervals[i];
+                int last = i + 1 < intervals.length ? intervals[i + 1] - 1 : MAX_CODE_POINT;
+                int nextCount = 0;
+                for (int pc : threads)
+                    if (pc < ops.length && ((ops[pc] == OP_CHAR && args[pc] == first) || (ops[pc] == OP_SET && contains(sets[args[pc]], first))))
+                        nextPcs[nextCount++] = pc + 1;
+                if (nextCount == 0)
+                    continue;
+
+                int[] nextThreads = closure(Arrays.copyOf(nextPcs, nextCount), false);
+                if (nextThreads == null)
+                    return null;
+
+                String key = Arrays.toString(nextThreads);
+                Integer target = stateIndexes.get(key);
+                if (target == null) {
+                    if (stateThreads.size() == maxStates)
+                        return null;
+
+                    target = stateThreads.size();
+                    stateThreads.add(nextThreads);
+                    stateIndexes.put(key, target);
+                }
+
+                if (size > 0 && stateTransitions[size - 1] == target && stateTransitions[size - 2] == first - 1)
+                    stateTransitions[size - 2] = last;
+                else {
+                    stateTransitions[size++] = first;
+                    stateTransitions[size++] = last;
+                    stateTransitions[size++] = target;
+                }
+            }
+            transitions.add(Arrays.copyOf(stateTransitions, size));
+        }
+
+        boolean[] accepting = new boolean[stateThreads.size()];
+        for (int state = 0; state < accepting.length; state++) {
+            int[] threads = stateThreads.get(state);
+            accepting[state] = threads.length > 0 && threads[threads.length - 1] == ops.length;
+        }
+        return new Dfa(accepting, transitions.toArray(new int[0][]));
+    }
+
+    /**
+     * @return first code point of each interval of the alphabet no character test tells apart
+     */
+    @NonNull
+    private int[] getIntervals() {
+        TreeSet<Integer> starts = new TreeSet<>();
+        starts.add(0);
+        for (int pc = 0; pc < ops.length; pc++) {
+            if (ops[pc] == OP_CHAR) {
+                starts.add(args[pc]);
+                starts.add(args[pc] + 1);
+            } else if (ops[pc] == OP_SET) {
+                int[] ranges = sets[args[pc]];
+                for (int i = 0; i < ranges.length; i += 2) {
+                    starts.add(ranges[i]);
+                    starts.add(ranges[i + 1] + 1);
+                }
+            }
+        }
+        starts.remove(MAX_CODE_POINT + 1);
+
+        int[] intervals = new int[starts.size()];
+        int i = 0;
+        for (int start : starts)
+            intervals[i++] = start;
+        return intervals;
+    }
+
+    /**
+     * @return the sorted character tests reachable from the program counters without consuming,
+     * followed by the program size if the text may end there; null if a character test is
+     * reachable past a {@code $}, which only matches the line terminators ending the text
+     */
+    @Nullable
+    private int[] closure(@NonNull final int[] startPcs, final boolean atStart) {
+        ThreadList threads = new ThreadList(ops.length);
+        ThreadList ends = new ThreadList(ops.length);
+        ThreadList pastEnds = new ThreadList(ops.length);
+        int[] stack = new int[ops.length * 2 + 1];
+
+        for (int pc : startPcs)
+            addClosure(threads, pc, atStart, ends, stack);
+        for (int i = 0; i < ends.size; i++)
+            addClosure(pastEnds, ends.dense[i] + 1, atStart, null, stack);
+
+        int[] result = new int[threads.size + 1];
+        int size = 0;
+        boolean accepting = false;
+        for (int i = 0; i < threads.size; i++) {
+            int pc = threads.dense[i];
+            if (ops[pc] == OP_CHAR || ops[pc] == OP_SET)
+                result[size++] = pc;
+            else if (ops[pc] == OP_MATCH)
+                accepting = true;
+        }
+        for (int i = 0; i < pastEnds.size; i++) {
+            int pc = pastEnds.dense[i];
+            if (ops[pc] == OP_CHAR || ops[pc] == OP_SET)
+                return null;
+            if (ops[pc] == OP_MATCH)
+                accepting = true;
+        }
+
+        Arrays.sort(result, 0, size);
+        if (accepting)
+            result[size++] = ops.length;
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * @param ends where to collect the {@code $} reached, null to pass them as at the end of the
+     *             text
+     */
+    private void addClosure(@NonNull final ThreadList list, final int startPc, final boolean atStart,
+                            @Nullable final ThreadList ends, @NonNull final int[] stack) {
+        int top = 0;
+        stack[top++] = startPc;
+
+        while (top > 0) {
+            int pc = stack[--top];
+            if (list.contains(pc))
+                continue;
+
+            list.add(pc);
+            switch (ops[pc]) {
+                case OP_JUMP:
+                    stack[top++] = args[pc];
+                    break;
+                case OP_SPLIT:
+                    stack[top++] = splitArgs[pc];
+                    stack[top++] = args[pc];
+                    break;
+                case OP_BEGIN:
+                    if (atStart)
+                        stack[top++] = pc + 1;
+                    break;
+                case OP_END:
+                    if (ends == null)
+                        stack[top++] = pc + 1;
+                    else if (!ends.contains(pc))
+                        ends.add(pc);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return true where {@code $} matches: at the end of the text or before a line terminator
+     * ending it
+     */
+    private static boolean isEnd(@NonNull final CharSequence text, final int position) {
+        int length = text.length();
+        if (position == length)
+            return true;
+        if (position == length - 2)
+            return text.charAt(position) == '\r' && text.charAt(position + 1) == '\n';
+        if (position == length - 1) {
+            char c = text.charAt(position);
+            if (c == '\n')
+                return position == 0 || text.charAt(position - 1) != '\r';
+            return c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
+        return false;
+    }
+
+    private static boolean contains(@NonNull final int[] ranges, final int codePoint) {
+        int low = 0;
+        int high = ranges.length / 2 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (codePoint < ranges[middle * 2])
+                high = middle - 1;
+            else if (codePoint > ranges[middle * 2 + 1])
+                low = middle + 1;
+            else
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Scratch space of a match, reused by a thread for all its matches.
+     */
+    static final class State {
+        private final ThreadList current;
+        private final ThreadList next;
+        private final int[] stack;
+        private long steps;
+
+        State(final int programSize) {
+            current = new ThreadList(programSize);
+            next = new ThreadList(programSize);
+            // every added program counter pushes at most two more
+            stack = new int[programSize * 2 + 1];
+        }
+    }
+
+    /**
+     * Deterministic automaton of a pattern, from {@link #toDfa(int)}. State 0 is the start state,
+     * and a code point without transition rejects the text.
+     */
+    static final class Dfa {
+        private final boolean[] accepting;
+        private final int[][] transitions;
+
+        Dfa(@NonNull final boolean[] accepting, @NonNull final int[][] transitions) {
+            this.accepting = accepting;
+            this.transitions = transitions;
+        }
+
+        int getStateCount() {
+            return accepting.length;
+        }
+
+        boolean isAccepting(final int state) {
+            return accepting[state];
+        }
+
+        /**
+         * @return triples of the first and last code point of a range and the state it leads to,
+         * sorted by code point
+         */
+        @NonNull
+        int[] getTransitions(final int state) {
+            return transitions[state];
+        }
+
+        boolean matches(@NonNull final CharSequence text) {
+            int state = 0;
+            for (int i = 0; i < text.length(); ) {
+                int codePoint = Character.codePointAt(text, i);
+                i += Character.charCount(codePoint);
+
+                int[] stateTransitions = transitions[state];
+                state = -1;
+                for (int j = 0; j < stateTransitions.length && state == -1; j += 3)
+                    if (codePoint >= stateTransitions[j] && codePoint <= stateTransitions[j + 1])
+                        state = stateTransitions[j + 2];
+                if (state == -1)
+                    return false;
+            }
+            return accepting[state];
+        }
+    }
+
+    // sparse set of program counters, cleared in constant time
+    private static final class ThreadList {
+        private final int[] dense;
+        private final int[] sparse;
+        private int size;
+
+        ThreadList(final int capacity) {
+            dense = new int[capacity];
+            sparse = new int[capacity];
+        }
+
+        boolean contains(final int pc) {
+            int index = sparse[pc];
+            return index < size && dense[index] == pc;
+        }
+
+        void add(final int pc) {
+            sparse[pc] = size;
+            dense[size++] = pc;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    private static final class Program {
+        private final List<Byte> ops = new ArrayList<>();
+        private final List<Integer> args = new ArrayList<>();
+        private final List<Integer> splitArgs = new ArrayList<>();
+        private final List<int[]> sets = new ArrayList<>();
+
+        int add(final byte op, final int arg, final int splitArg) {
+            if (ops.size() == MAX_PROGRAM_SIZE)
+                throw new UnsupportedPatternException("pattern too large");
+
+            ops.add(op);
+            args.add(arg);
+            splitArgs.add(splitArg);
+            return ops.size() - 1;
+        }
+
+        int addSet(@NonNull final int[] ranges) {
+            sets.add(ranges);
+            return sets.size() - 1;
+        }
+
+        int size() {
+            return ops.size();
+        }
+
+        void patch(final int pc, final int arg, final int splitArg) {
+            args.set(pc, arg);
+            splitArgs.set(pc, splitArg);
+        }
+    }
+
+    private static final class UnsupportedPatternException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedPatternException(@NonNull final String message) {
+            super(message);
+        }
+    }
+
+    private abstract static class Node {
+        abstract void emit(@NonNull Program program);
+
+        /**
+         * @return true if the node may match a non-empty text
+         */
+        abstract boolean consumes();
+
+        /**
+         * @return true if the node may match the empty text
+         */
+        abstract boolean canBeEmpty();
+
+        /**
+         * @return true if the node matches a single character
+         */
+        boolean isSingleCharacter() {
+            return false;
+        }
+
+        /**
+         * @return true if the node is or holds a ^ or $ anchor
+         */
+        boolean hasAssertion() {
+            return false;
+        }
+
+        /**
+         * @return ranges of the characters a single character node matches
+         */
+        @NonNull
+        int[] getRanges() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Nullable
+        String findHazard() {
+            return null;
+        }
+    }
+
+    private static final class CharNode extends Node {
+        private final int codePoint;
+
+        CharNode(final int codePoint) {
+            this.codePoint = codePoint;
+        }
+
+        @Override
+        void emit(@NonNull final Program program) {
+            program.add(OP_CHAR, codePoint, 0);
+        }
+
+        @NonNull
+        @Override
+        int[] getRanges() {
+            return new int[]{codePoint, codePoint};
+        }
+
+        @Override
+        boolean consumes() {
+            return true;
+        }
+
+        @Override
+        boolean canBeEmpty() {
+            return false;
+        }
+
+        @Override
+        boolean isSingleCharacter() {
+            return true;
+        }
+    }
+
+    private static final class SetNode extends Node {
+        private final int[] ranges;
+
+        SetNode(@NonNull final int[] ranges) {
+            this.ranges = ranges;
+        }
+
+        @Override
+        void emit(@NonNull final Program program) {
+            program.add(OP_SET, program.addSet(ranges), 0);
+        }
+
+        @NonNull
+        @Override
+        int[] getRanges() {
+            return ranges;
+        }
+
+        @Override
+        boolean consumes() {
+            return true;
+        }
+
+        @Override
+        boolean canBeEmpty() {
+            return false;
+        }
+
+        @Override
+        boolean isSingleCharacter() {
+            return true;
+        }
+    }
+
+    private static final class AssertionNode extends Node {
+        private final byte op;
+
+        AssertionNode(final byte op) {
+            this.op = op;
+        }
+
+        @Override
+        void emit(@NonNull final Program program) {
+            program.add(op, 0, 0);
+        }
+
+        @Override
+        boolean consumes() {
+            return false;
+        }
+
+        @Override
+        boolean canBeEmpty() {
+            return true;
+        }
+
+        @Override
+        boolean hasAssertion() {
+            return true;
+        }
+    }
+
+    private static final class ConcatNode extends Node {
+        private final List<Node> nodes;
+
+        ConcatNode(@NonNull final List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        void emit(@NonNull final Program program) {
+            for (Node node : nodes)
+                node.emit(program);
+        }
+
+        @Override
+        boolean consumes() {
+            for (Node node : nodes)
+                if (node.consumes())
+                    return true;
+
+            return false;
+        }
+
+        @Override
+        boolean canBeEmpty() {
+            for (Node node : nodes)
+                if (!node.canBeEmpty())
+                    return false;
+
+            return true;
+        }
+
+        @Override
+        boolean hasAssertion() {
+            for (Node node : nodes)
+                if (node.hasAssertion())
+                    return true;
+
+            return false;
+        }
+
+        @Nullable
+        @Override
+        String findHazard() {
+            for (Node node : nodes) {
+                String hazard = node.findHazard();
+                if (hazard != null)
+                    return hazard;
+            }
+            return null;
+        }
+    }
+
+    private static final class AlternationNode extends Node {
+        private final List<Node> alternatives;
+
+        AlternationNode(@NonNull final List<Node> alternatives) {
+            this.alternatives = alternatives;
+        }
+
+        @Override
+        void emit(@NonNull final Program program) {
+            List<Integer> jumps = new ArrayList<>();
+            for (int i = 0; i < alternatives.size() - 1; i++) {
+                int split = program.add(OP_SPLIT, 0, 0);
+                alternatives.get(i).emit(program);
+                jumps.add(program.add(OP_JUMP, 0, 0));
+                program.patch(split, split + 1, program.size());
+            }
+            alternatives.get(alternatives.size() - 1).emit(program);
+
+            for (int jump : jumps)
+                program.patch(jump, program.size(), 0);
+        }
+
+        @Override
+        boolean consumes() {
+            for (Node node : alternatives)
+                if (node.consumes())
+                    return true;
+
+            return false;
+        }
+
+        @Override
+        boolean canBeEmpty() {
+            for (Node node : alternatives)
+                if (node.canBeEmpty())
+                    return true;
+
+            return false;
+        }
+
+        @Override
+        boolean hasAssertion() {
+            for (Node node : alternatives)
+                if (node.hasAssertion())
+                    return true;
+
+            return false;
+        }
+
+        /**
+         * @return true if the alternatives are all single characters which no two of them share,
+         * so that a backtracking engine cannot match a character in several ways
+         */
+        boolean isCharacterChoice() {
+            List<int[]> previousRanges = new ArrayList<>();
+            for (Node node : alternatives) {
+                if (!node.isSingleCharacter() || !RepeatNode.isDisjoint(node.getRanges(), previousRanges))
+                    return false;
+
+                previousRanges.add(node.getRanges());
+            }
+            return true;
+        }
+
+        @Nullable
+        @Override
+        String findHazard() {
+            for (Node node : alternatives) {
+                String hazard = node.findHazard();
+                if (hazard != null)
+                    return hazard;
+            }
+            return null;
+        }
+    }
+
+    private static final class RepeatNode extends Node {
+        private final Node node;
+        private final int min;
+        // -1 for no upper bound
+        private final int max;
+
+        RepeatNode(@NonNull final Node node, final int min, final int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        void emit(@NonNull final Program program) {
+            for (int i = 0; i < min; i++)
+                node.emit(program);
+
+            if (max == -1) {
+                int split = program.add(OP_SPLIT, 0, 0);
+                node.emit(program);
+                program.add(OP_JUMP, split, 0);
+                program.patch(split, split + 1, program.size());
+                return;
+            }
+
+            List<Integer> splits = new ArrayList<>();
+            for (int i = min; i < max; i++) {
+                splits.add(program.add(OP_SPLIT, 0, 0));
+                node.emit(program);
+            }
+            for (int split : splits)
+                program.patch(split, split + 1, program.size());
+        }
+
+        @Override
+        boolean consumes() {
+            return max != 0 && node.consumes();
+        }
+
+        @Override
+        boolean canBeEmpty() {
+            return min == 0 || node.canBeEmpty();
+        }
+
+        @Override
+        boolean hasAssertion() {
+            return node.hasAssertion();
+        }
+
+        /**
+         * @return true if the node repeats a text which may be non-empty
+         */
+        boolean repeats() {
+            return (max == -1 || max > 1) && node.consumes();
+        }
+
+        /**
+         * A repeated body is matched in exponentially many ways when it is a repetition itself,
+         * besides parts which may be empty, as in (a+)+ or (a*b?)*, or a choice between texts
+         * which may share a prefix, as in (a|ab)*. A body is safe when a mandatory character
+         * outside the repeated characters delimits the iterations, as in (\.[a-z]+)*.
+         */
+        @Nullable
+        @Override
+        String findHazard() {
+            if (repeats()) {
+                List<Node> body = node instanceof ConcatNode ? ((ConcatNode) node).nodes : Collections.singletonList(node);
+                List<int[]> repeatedRanges = new ArrayList<>();
+                boolean hasRepetition = false;
+                for (Node part : body) {
+                    if (part instanceof RepeatNode && ((RepeatNode) part).repeats()) {
+                        hasRepetition = true;
+                        Node repeated = ((RepeatNode) part).node;
+                        repeatedRanges.add(repeated.isSingleCharacter() ? repeated.getRanges() : null);
+                    }
+                }
+
+                boolean isDelimited = false;
+                for (Node part : body)
+                    if (!part.canBeEmpty() && !(part instanceof RepeatNode && ((RepeatNode) part).repeats()))
+                        isDelimited |= !part.isSingleCharacter() || isDisjoint(part.getRanges(), repeatedRanges);
+
+                if (hasRepetition && !isDelimited)
+                    return "nested quantifier, e.g. (a+)+";
+                if (node instanceof AlternationNode && !((AlternationNode) node).isCharacterChoice())
+                    return "quantified alternation, e.g. (a|ab)*";
+            }
+            return node.findHazard();
+        }
+
+        /**
+         * @return true if the ranges overlap none of the repeated ranges, which are null when
+         * unknown
+         */
+        static boolean isDisjoint(@NonNull final int[] ranges, @NonNull final List<int[]> repeatedRanges) {
+            for (int[] repeated : repeatedRanges) {
+                if (repeated == null)
+                    return false;
+
+                for (int i = 0; i < ranges.length; i += 2)
+                    for (int j = 0; j < repeated.length; j += 2)
+                        if (ranges[i] <= repeated[j + 1] && repeated[j] <= ranges[i + 1])
+                            return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class Parser {
+        private final String regex;
+        private int position;
+
+        Parser(@NonNull final String regex) {
+            this.regex = regex;
+        }
+
+        @NonNull
+        Node parse() {
+            Node node = parseAlternation();
+            if (position < regex.length())
+                throw new UnsupportedPatternException("unbalanced parenthesis");
+            return node;
+        }
+
+        private boolean hasMore() {
+            return position < regex.length();
+        }
+
+        private int peek() {
+            return regex.codePointAt(position);
+        }
+
+        private int next() {
+            int codePoint = regex.codePointAt(position);
+            position += Character.charCount(codePoint);
+            return codePoint;
+        }
+
+        private boolean consume(final char c) {
+            if (hasMore() && regex.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        @NonNull
+        private Node parseAlternation() {
+            List<Node> alternatives = new ArrayList<>();
+            alternatives.add(parseConcatenation());
+            while (consume('|'))
+                alternatives.add(parseConcatenation());
+
+            return alternatives.size() == 1 ? alternatives.get(0) : new AlternationNode(alternatives);
+        }
+
+        @NonNull
+        private Node parseConcatenation() {
+            List<Node> nodes = new ArrayList<>();
+            while (hasMore() && peek() != '|' && peek() != ')')
+                nodes.add(parseQuantified(parseAtom()));
+
+            return nodes.size() == 1 ? nodes.get(0) : new ConcatNode(nodes);
+        }
+
+        @NonNull
+        private Node parseQuantified(@NonNull final Node atom) {
+            if (!hasMore())
+                return atom;
+
+            int min;
+            int max;
+            switch (peek()) {
+                case '*':
+                    next();
+                    min = 0;
+                    max = -1;
+                    break;
+                case '+':
+                    next();
+                    min = 1;
+                    max = -1;
+                    break;
+                case '?':
+                    next();
+                    min = 0;
+                    max = 1;
+                    break;
+                case '{':
+                    next();
+                    min = parseNumber();
+                    max = consume(',') ? (hasMore() && peek() == '}' ? -1 : parseNumber()) : min;
+                    if (!consume('}'))
+                        throw new UnsupportedPatternException("malformed repetition");
+                    break;
+                default:
+                    return atom;
+            }
+
+            // lazy quantifiers accept the same texts in a full match, possessive ones do not
+            if (consume('+'))
+                throw new UnsupportedPatternException("possessive quantifier");
+            consume('?');
+
+            if (hasMore() && (peek() == '*' || peek() == '+' || peek() == '?' || peek() == '{'))
+                throw new UnsupportedPatternException("stacked quantifiers");
+            // java.util.regex gives repeated anchors a meaning of their own, left to it
+            if (atom.hasAssertion())
+                throw new UnsupportedPatternException("quantified anchor");
+            return new RepeatNode(atom, min, max);
+        }
+
+        private int parseNumber() {
+            int start = position;
+            while (hasMore() && regex.charAt(position) >= '0' && regex.charAt(position) <= '9')
+                position++;
+
+            if (start == position || position - start > 4)
+                throw new UnsupportedPatternException("malformed repetition");
+            return Integer.parseInt(regex.substring(start, position));
+        }
+
+        @NonNull
+        private Node parseAtom() {
+            int codePoint = next();
+            switch (codePoint) {
+                case '(':
+                    if (consume('?') && !consume(':'))
+                        throw new UnsupportedPatternException("group construct (?" );
+                    Node group = parseAlternation();
+                    if (!consume(')'))
+                        throw new UnsupportedPatternException("unbalanced parenthesis");
+                    return group;
+                case '[':
+                    return new SetNode(parseClass());
+                case '.':
+                    return new SetNode(complement(ranges('\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029)));
+                case '^':
+                    return new AssertionNode(OP_BEGIN);
+                case '$':
+                    return new AssertionNode(OP_END);
+                case '\\':
+                    int[] set = parseEscape();
+                    return set.length == 2 && set[0] == set[1] ? new CharNode(set[0]) : new SetNode(set);
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw new UnsupportedPatternException("dangling quantifier");
+                default:
+                    return new CharNode(codePoint);
+            }
+        }
+
+        @NonNull
+        private int[] parseClass() {
+            boolean negated = consume('^');
+            if (hasMore() && peek() == ']')
+                throw new UnsupportedPatternException("leading ] in class");
+
+            List<int[]> parts = new ArrayList<>();
+            while (true) {
+                if (!hasMore())
+                    throw new UnsupportedPatternException("unclosed class");
+
+                int codePoint = next();
+                if (codePoint == ']')
+                    break;
+                if (codePoint == '[')
+                    throw new UnsupportedPatternException("nested class");
+                if (codePoint == '&' && hasMore() && peek() == '&')
+                    throw new UnsupportedPatternException("class intersection");
+
+                int[] part = codePoint == '\\' ? parseEscape() : ranges(codePoint, codePoint);
+                boolean isSingle = part.length == 2 && part[0] == part[1];
+
+                if (isSingle && hasMore() && peek() == '-' && position + 1 < regex.length()
+                        && regex.charAt(position + 1) != ']') {
+                    next();
+                    int end = next();
+                    if (end == '[')
+                        throw new UnsupportedPatternException("nested class");
+                    if (end == '\\') {
+                        int[] endPart = parseEscape();
+                        if (endPart.length != 2 || endPart[0] != endPart[1])
+                            throw new UnsupportedPatternException("range to a class");
+                        end = endPart[0];
+                    }
+                    if (end < part[0])
+                        throw new UnsupportedPatternException("illegal range");
+                    part = ranges(part[0], end);
+                } else if (!isSingle && hasMore() && peek() == '-' && position + 1 < regex.length()
+                        && regex.charAt(position + 1) != ']')
+                    throw new UnsupportedPatternException("range from a class");
+                parts.add(part);
+            }
+
+            int[] set = union(parts);
+            return negated ? complement(set) : set;
+        }
+
+        /**
+         * @return ranges matched by the escape following the backslash, a single code point for a
+         * literal
+         */
+        @NonNull
+        private int[] parseEscape() {
+            if (!hasMore())
+                throw new UnsupportedPatternException("trailing backslash");
+
+            int codePoint = next();
+            switch (codePoint) {
+                case 'd':
+                    return ranges('0', '9');
+                case 'D':
+                    return complement(ranges('0', '9'));
+                case 'w':
+                    return ranges('0', '9', 'A', 'Z', '_', '_', 'a', 'z');
+                case 'W':
+                    return complement(ranges('0', '9', 'A', 'Z', '_', '_', 'a', 'z'));
+                case 's':
+                    return ranges('\t', '\r', ' ', ' ');
+                case 'S':
+                    return complement(ranges('\t', '\r', ' ', ' '));
+                case 'p':
+                    return parsePosixClass();
+                case 'P':
+                    return complement(parsePosixClass());
+                case 't':
+                    return ranges('\t', '\t');
+                case 'n':
+                    return ranges('\n', '\n');
+                case 'r':
+                    return ranges('\r', '\r');
+                case 'f':
+                    return ranges('\f', '\f');
+                case 'a':
+                    return ranges(0x07, 0x07);
+                case 'e':
+                    return ranges(0x1B, 0x1B);
+                case '0':
+                    return parseOctal();
+                case 'x':
+                    return parseHex(2);
+                case 'u':
+                    return parseHex(4);
+                default:
+                    if (Character.isLetterOrDigit(codePoint))
+                        throw new UnsupportedPatternException("escape \\" + new String(Character.toChars(codePoint)));
+                    return ranges(codePoint, codePoint);
+            }
+        }
+
+        @NonNull
+        private int[] parsePosixClass() {
+            if (!consume('{'))
+                throw new UnsupportedPatternException("single letter property");
+
+            int end = regex.indexOf('}', position);
+            if (end == -1)
+                throw new UnsupportedPatternException("unclosed property");
+            String name = regex.substring(position, end);
+            position = end + 1;
+
+            switch (name) {
+                case "Lower":
+                    return ranges('a', 'z');
+                case "Upper":
+                    return ranges('A', 'Z');
+                case "ASCII":
+                    return ranges(0x00, 0x7F);
+                case "Alpha":
+                    return ranges('A', 'Z', 'a', 'z');
+                case "Digit":
+                    return ranges('0', '9');
+                case "Alnum":
+                    return ranges('0', '9', 'A', 'Z', 'a', 'z');
+                case "Punct":
+                    return ranges(0x21, 0x2F, 0x3A, 0x40, 0x5B, 0x60, 0x7B, 0x7E);
+                case "Graph":
+                    return ranges(0x21, 0x7E);
+                case "Print":
+                    return ranges(0x20, 0x7E);
+                case "Blank":
+                    return ranges('\t', '\t', ' ', ' ');
+                case "Cntrl":
+                    return ranges(0x00, 0x1F, 0x7F, 0x7F);
+                case "XDigit":
+                    return ranges('0', '9', 'A', 'F', 'a', 'f');
+                case "Space":
+                    return ranges('\t', '\r', ' ', ' ');
+                default:
+                    throw new UnsupportedPatternException("property " + name);
+            }
+        }
+
+        @NonNull
+        private int[] parseOctal() {
+            int value = 0;
+            int digits = 0;
+            while (digits < 3 && hasMore() && regex.charAt(position) >= '0' && regex.charAt(position) <= '7') {
+                int candidate = value * 8 + regex.charAt(position) - '0';
+                if (candidate > 0377)
+                    break;
+                value = candidate;
+                position++;
+                digits++;
+            }
+            if (digits == 0)
+                throw new UnsupportedPatternException("malformed octal escape");
+            return ranges(value, value);
+        }
+
+        @NonNull
+        private int[] parseHex(final int digits) {
+            if (position + digits > regex.length())
+                throw new UnsupportedPatternException("malformed hexadecimal escape");
+
+            int value = 0;
+            for (int i = 0; i < digits; i++) {
+                int digit = Character.digit(regex.charAt(position++), 16);
+                if (digit == -1)
+                    throw new UnsupportedPatternException("malformed hexadecimal escape");
+                value = value * 16 + digit;
+            }
+            return ranges(value, value);
+        }
+    }
+
+    /**
+     * @param bounds pairs of first and last code point of each range
+     * @return the ranges, sorted and merged
+     */
+    @NonNull
+    private static int[] ranges(@NonNull final int... bounds) {
+        List<int[]> parts = new ArrayList<>();
+        for (int i = 0; i < bounds.length; i += 2)
+            parts.add(new int[]{bounds[i], bounds[i + 1]});
+
+        return union(parts);
+    }
+
+    @NonNull
+    private static int[] union(@NonNull final List<int[]> sets) {
+        List<int[]> ranges = new ArrayList<>();
+        for (int[] set : sets)
+            for (int i = 0; i < set.length; i += 2)
+                ranges.add(new int[]{set[i], set[i + 1]});
+
+        Collections.sort(ranges, (first, second) -> Integer.compare(first[0], second[0]));
+
+        int[] merged = new int[ranges.size() * 2];
+        int size = 0;
+        for (int[] range : ranges) {
+            if (size > 0 && range[0] <= merged[size - 1] + 1)
+                merged[size - 1] = Math.max(merged[size - 1], range[1]);
+            else {
+                merged[size++] = range[0];
+                merged[size++] = range[1];
+            }
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    @NonNull
+    private static int[] complement(@NonNull final int[] set) {
+        int[] complement = new int[set.length + 2];
+        int size = 0;
+        int start = 0;
+        for (int i = 0; i < set.length; i += 2) {
+            if (set[i] > start) {
+                complement[size++] = start;
+                complement[size++] = set[i] - 1;
+            }
+            start = set[i + 1] + 1;
+        }
+        if (start <= MAX_CODE_POINT) {
+            complement[size++] = start;
+            complement[size++] = MAX_CODE_POINT;
+        }
+        return Arrays.copyOf(complement, size);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <h1>{@link TextMatcher} for a compiled validationRegex</h1>
+ * <p>
+ * Every thread reuses its own {@link Matcher}, which is reset against the text on each call so
+ * that no new matcher is needed per check. The ICU based engine of Android still copies the text
+ * into a String on every reset.
+ * <p>
+ * With a step budget, the pattern is matched by {@link LinearRegex} when it fits the regular
+ * subset, which bounds the work by the budget whatever the pattern. Other patterns are matched by
+ * java.util.regex through an input which aborts the match once the budget of character reads is
+ * spent, on the JVM only: the engine of Android copies the input first and never reads it
+ * through the budget. Those patterns are therefore not protected on Android, which
+ * {@link ValidationRules#getValidationRegexHazard()} reports.
+ * <p>
+ * Patterns found in the resources at build time are matched by the code generated for them, see
+ * {@link ValidationMatcherGenerator}.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+final class RegexMatcher implements TextMatcher {
+
+    static final int MATCH = 0;
+    static final int NO_MATCH = 1;
+    static final int BUDGET_EXCEEDED = 2;
+
+    private final Pattern pattern;
+    private final int stepBudget;
+    private final LinearRegex linearRegex;
+    private final ThreadLocal<MatchState> matchState;
+    private final TextMatcher generatedMatcher;
+
+    RegexMatcher(@NonNull final Pattern pattern) {
+        this(pattern, -1);
+    }
+
+    /**
+     * @param stepBudget maximum work per match, -1 for none
+     */
+    RegexMatcher(@NonNull final Pattern pattern, final int stepBudget) {
+        this.pattern = pattern;
+        this.stepBudget = stepBudget;
+        this.linearRegex = stepBudget > 0 ? LinearRegex.compile(pattern.pattern()) : null;
+        this.matchState = new ThreadLocal<MatchState>() {
+            @Override
+            protected MatchState initialValue() {
+                return new MatchState(pattern, linearRegex);
+            }
+        };
+        this.generatedMatcher = null;
+    }
+
+    /**
+     * @param generatedMatcher matcher generated at build time for the pattern, which takes a
+     *                         single step per character and so needs no budget
+     */
+    RegexMatcher(@NonNull final TextMatcher generatedMatcher) {
+        this.pattern = null;
+        this.stepBudget = -1;
+        this.linearRegex = null;
+        this.matchState = null;
+        this.generatedMatcher = generatedMatcher;
+    }
+
+    /**
+     * @return the compiled pattern, null if the matcher was generated at build time
+     */
+    @Nullable
+    Pattern getPattern() {
+        return pattern;
+    }
+
+    int getStepBudget() {
+        return stepBudget;
+    }
+
+    @Override
+    public boolean matches(@NonNull final CharSequence text) {
+        return match(text) == MATCH;
+    }
+
+    /**
+     * @return {@link #MATCH}, {@link #NO_MATCH} or {@link #BUDGET_EXCEEDED}
+     */
+    int match(@NonNull final CharSequence text) {
+        if (generatedMatcher != null)
+            return generatedMatcher.matches(text) ? MATCH : NO_MATCH;
+
+        MatchState state = matchState.get();
+
+        if (stepBudget <= 0) {
+            try {
+                return state.matcher.reset(text).matches() ? MATCH : NO_MATCH;
+            } finally {
+                // the matcher outlives the call, it must not keep the text and its views reachable
+                state.matcher.reset("");
+            }
+        }
+
+        if (linearRegex != null)
+            return linearRegex.match(text, stepBudget, state.linearState);
+
+        BudgetedCharSequence input = state.budgetedInput;
+        input.reset(text, stepBudget);
+        try {
+            return state.matcher.reset(input).matches() ? MATCH : NO_MATCH;
+        } catch (BudgetExceededException e) {
+            return BUDGET_EXCEEDED;
+        } finally {
+            input.reset("", 0);
+        }
+    }
+
+    private static final class MatchState {
+        private final Matcher matcher;
+        private final LinearRegex.State linearState;
+        private final BudgetedCharSequence budgetedInput;
+
+        MatchState(@NonNull final Pattern pattern, @Nullable final LinearRegex linearRegex) {
+            matcher = pattern.matcher("");
+            linearState = linearRegex != null ? linearRegex.newState() : null;
+            budgetedInput = new BudgetedCharSequence();
+        }
+    }
+
+    /**
+     * Input counting the characters read by the regex engine.
+     */
+    private static final class BudgetedCharSequence implements CharSequence {
+        private CharSequence text = "";
+        private int remainingReads;
+
+        void reset(@NonNull final CharSequence text, final int budget) {
+            this.text = text;
+            this.remainingReads = budget;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(final int index) {
+            if (--remainingReads < 0)
+                throw BudgetExceededException.INSTANCE;
+            return text.charAt(index);
+        }
+
+        @NonNull
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return text.subSequence(start, end);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    private static final class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        // thrown on every exceeded budget, without the cost of a stack trace
+        static final BudgetExceededException INSTANCE = new BudgetExceededException();
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -30,13 +30,22 @@
  */
 package com.mvivekanandji.validatingtextinputlayout;
 
+import android.os.Trace;
 import android.text.TextUtils;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -69,22 +78,91 @@ public class TextInputLayoutValidator implements ValidatingTextWatcher.OnStateCh
 
     }
 
+    // declared in the order the rules are checked, the first error of a mask is its lowest bit
     public enum ValidationError {
         REQUIRED,
         MIN_LENGTH,
         MAX_LENGTH,
         REGEX,
-        VALIDATION_TYPE
+        REGEX_BUDGET_EXCEEDED,
+        VALIDATION_TYPE,
+        CROSS_FIELD
     }
 
-    private final Map<ValidatingTextInputLayout, Pair> inputLayoutPairMap;
+    /**
+     * Error limit of {@link #validate(boolean, int)} which validates every field
+     */
+    public static final int ALL_ERRORS = Integer.MAX_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // visit states of the fields while sorting the cross field rules
+    private static final byte VISITING = 1;
+    private static final byte VISITED = 2;
+
+    /*
+     * State of the fields in dense arrays indexed by registration order, which for the fields
+     * found by the initial walk is their top to bottom layout order. A set bit of errorFlags marks
+     * a field in error, a set bit of cachedFlags a field whose last error mask in errorMasks is
+     * reusable for the edit and rule generations it was computed for.
+     */
+    private ValidatingTextInputLayout[] inputLayouts;
+    private ValidatingTextWatcher[] textWatchers;
+    private int[] errorMasks;
+    private int[] validatedEditGenerations;
+    private int[] validatedRuleGenerations;
+    private final BitSet errorFlags;
+    private final BitSet cachedFlags;
+    private int fieldCount;
+
+    /*
+     * Validation groups by path, created on first use. fieldGroups holds the innermost group of
+     * every field, the field belonging to the enclosing groups through the parent links.
+     * groupIndices is scratch space listing the fields of a validated group.
+     */
+    private ValidationGroup[] fieldGroups;
+    private final Map<String, ValidationGroup> validationGroups;
+    private int[] groupIndices;
+
+    /*
+     * Cross field rules sorted so that the rules of a field come after the rules of the fields it
+     * depends on, the rules of a field being contiguous. changedFlags is scratch space of the
+     * propagation of an edit to the dependent fields.
+     */
+    private final List<CrossFieldConstraint> crossFieldConstraints;
+    private final BitSet changedFlags;
+
     private final ValidatorListener validatorListener;
+    private ValidationMetricsListener metricsListener;
+    private boolean isTraceEnabled;
+    // weakly held so that a validator outliving its views, e.g. on a fragment back stack, does not keep them
+    private WeakReference<ViewGroup> rootViewGroup;
+    private final HierarchyTracker hierarchyTracker;
+    private boolean isHierarchyTracked;
+    private LifecycleBinding lifecycleBinding;
+    private int invalidFieldCount;
 
     public TextInputLayoutValidator(@NonNull final ViewGroup viewGroup, @NonNull final ValidatorListener validatorListener) {
-        inputLayoutPairMap = new HashMap<>();
+        inputLayouts = new ValidatingTextInputLayout[INITIAL_CAPACITY];
+        textWatchers = new ValidatingTextWatcher[INITIAL_CAPACITY];
+        errorMasks = new int[INITIAL_CAPACITY];
+        validatedEditGenerations = new int[INITIAL_CAPACITY];
+        validatedRuleGenerations = new int[INITIAL_CAPACITY];
+        errorFlags = new BitSet(INITIAL_CAPACITY);
+        cachedFlags = new BitSet(INITIAL_CAPACITY);
+        fieldGroups = new ValidationGroup[INITIAL_CAPACITY];
+        validationGroups = new HashMap<>();
+        groupIndices = new int[0];
+        crossFieldConstraints = new ArrayList<>();
+        changedFlags = new BitSet(INITIAL_CAPACITY);
         this.validatorListener = validatorListener;
+        this.rootViewGroup = new WeakReference<>(viewGroup);
+        this.hierarchyTracker = new HierarchyTracker();
         initLayoutList(viewGroup);
         attachListeners(false);
+        // layouts whose state was restored before the validator was created, e.g. in a fragment
+        for (int i = 0; i < fieldCount; i++)
+            restorePendingValidation(i);
     }
 
     private void initLayoutList(@NonNull final ViewGroup viewGroup) {
@@ -92,181 +170,559 @@ public class TextInputLayoutValidator implements ValidatingTextWatcher.OnStateCh
             View view = viewGroup.getChildAt(i);
 
             if (view instanceof ValidatingTextInputLayout)
-                inputLayoutPairMap.put((ValidatingTextInputLayout) view, new Pair(!((ValidatingTextInputLayout) view).isAnyValidationSet()));
+                addLayout((ValidatingTextInputLayout) view);
             else if (view instanceof ViewGroup && (((ViewGroup) view).getChildCount() > 0))
                 initLayoutList((ViewGroup) view);
         }
     }
 
-    public boolean isValid() {
-        for (Map.Entry<ValidatingTextInputLayout, Pair> entry : inputLayoutPairMap.entrySet())
-            if (!entry.getValue().isErrorFree())
-                return false;
+    /**
+     * @return index of the added field, or -1 if the layout was already registered
+     */
+    private int addLayout(@NonNull final ValidatingTextInputLayout inputLayout) {
+        if (inputLayout.getValidator() == this)
+            return -1;
+
+        // a layout is validated by a single validator at a time
+        if (inputLayout.getValidator() != null)
+            inputLayout.getValidator().unregister(inputLayout);
+
+        if (fieldCount == inputLayouts.length) {
+            int capacity = fieldCount * 2;
+            inputLayouts = Arrays.copyOf(inputLayouts, capacity);
+            textWatchers = Arrays.copyOf(textWatchers, capacity);
+            errorMasks = Arrays.copyOf(errorMasks, capacity);
+            validatedEditGenerations = Arrays.copyOf(validatedEditGenerations, capacity);
+            validatedRuleGenerations = Arrays.copyOf(validatedRuleGenerations, capacity);
+            fieldGroups = Arrays.copyOf(fieldGroups, capacity);
+        }
 
-        return true;
+        int index = fieldCount++;
+        inputLayouts[index] = inputLayout;
+        textWatchers[index] = null;
+        errorMasks[index] = 0;
+        cachedFlags.clear(index);
+        if (inputLayout.isAnyValidationSet()) {
+            errorFlags.set(index);
+            invalidFieldCount++;
+        } else
+            errorFlags.clear(index);
+
+        inputLayout.setValidator(this, index);
+        joinGroup(index, inputLayout.getValidationGroup());
+        return index;
     }
 
-    public void validateSilently() {
-        List<ValidatingTextInputLayout> errorLayoutList = new ArrayList<>();
-        List<ValidationError> validationErrorList = new ArrayList<>();
-
-        for (Map.Entry<ValidatingTextInputLayout, Pair> entry : inputLayoutPairMap.entrySet()) {
-            String text = entry.getKey().getEditText().getText().toString();
-            boolean isErrorFree = true;
+    /**
+     * Adds a layout which was not under the root {@link ViewGroup} when the validator was created.
+     * A layout which is already registered is left untouched, and a layout registered with another
+     * validator is moved to this one.
+     *
+     * @param inputLayout layout to be validated along with the rest of the form
+     */
+    public void register(@NonNull final ValidatingTextInputLayout inputLayout) {
+        int index = addLayout(inputLayout);
+        if (index == -1)
+            return;
+
+        if (inputLayout.isContinuousValidationRequired())
+            attachTextWatcher(index);
+        restorePendingValidation(index);
+    }
 
-            if (!entry.getValue().isTextWatcherAttached())
-                attachTextWatcher(entry.getKey(), entry.getValue());
+    /**
+     * Registers every {@link ValidatingTextInputLayout} found under the view group, walking only
+     * that subtree. Once the validator is released, the view group becomes the new root
+     * {@link ViewGroup}, the one whose hierarchy is tracked.
+     *
+     * @param viewGroup root of the added subtree
+     */
+    public void registerAll(@NonNull final ViewGroup viewGroup) {
+        if (rootViewGroup.get() == null)
+            rootViewGroup = new WeakReference<>(viewGroup);
 
-            if (entry.getKey().isRequired() && TextUtils.isEmpty(text)) {
+        if (viewGroup instanceof ValidatingTextInputLayout) {
+            register((ValidatingTextInputLayout) viewGroup);
+            return;
+        }
 
-                if (validatorListener != null)
-                    validatorListener.onError(entry.getKey(), ValidationError.REQUIRED, true);
+        for (int i = 0, count = viewGroup.getChildCount(); i < count; i++) {
+            View view = viewGroup.getChildAt(i);
 
-                errorLayoutList.add(entry.getKey());
-                validationErrorList.add(ValidationError.REQUIRED);
-                isErrorFree = false;
+            if (view instanceof ValidatingTextInputLayout)
+                register((ValidatingTextInputLayout) view);
+            else if (view instanceof ViewGroup && (((ViewGroup) view).getChildCount() > 0))
+                registerAll((ViewGroup) view);
+        }
+    }
 
-            } else if (entry.getKey().isMinLengthSet() && text.length() < entry.getKey().getMinLength()) {
+    /**
+     * Stops validating the layout. Its text watcher is removed and it no longer counts towards
+     * {@link #isValid()}.
+     *
+     * @param inputLayout layout to be removed from the form
+     */
+    public void unregister(@NonNull final ValidatingTextInputLayout inputLayout) {
+        if (inputLayout.getValidator() != this)
+            return;
+
+        int index = inputLayout.getValidatorIndex();
+        boolean wasInError = errorFlags.get(index);
+
+        for (int i = crossFieldConstraints.size() - 1; i >= 0; i--)
+            if (crossFieldConstraints.get(i).involves(inputLayout))
+                crossFieldConstraints.remove(i);
+
+        if (textWatchers[index] != null)
+            textWatchers[index].detach();
+        leaveGroup(index);
+
+        int moved = fieldCount - index - 1;
+        System.arraycopy(inputLayouts, index + 1, inputLayouts, index, moved);
+        System.arraycopy(textWatchers, index + 1, textWatchers, index, moved);
+        System.arraycopy(errorMasks, index + 1, errorMasks, index, moved);
+        System.arraycopy(validatedEditGenerations, index + 1, validatedEditGenerations, index, moved);
+        System.arraycopy(validatedRuleGenerations, index + 1, validatedRuleGenerations, index, moved);
+        System.arraycopy(fieldGroups, index + 1, fieldGroups, index, moved);
+        for (int i = index; i < fieldCount - 1; i++) {
+            errorFlags.set(i, errorFlags.get(i + 1));
+            cachedFlags.set(i, cachedFlags.get(i + 1));
+            inputLayouts[i].setValidator(this, i);
+        }
 
-                if (validatorListener != null)
-                    validatorListener.onError(entry.getKey(), ValidationError.MIN_LENGTH, true);
+        fieldCount--;
+        inputLayouts[fieldCount] = null;
+        textWatchers[fieldCount] = null;
+        fieldGroups[fieldCount] = null;
+        errorFlags.clear(fieldCount);
+        cachedFlags.clear(fieldCount);
+        inputLayout.setValidator(null, -1);
 
-                errorLayoutList.add(entry.getKey());
-                validationErrorList.add(ValidationError.MIN_LENGTH);
-                isErrorFree = false;
+        if (wasInError && --invalidFieldCount == 0 && validatorListener != null)
+            validatorListener.onSuccess();
+    }
 
-            } else if (entry.getKey().isMaxLengthSet() && text.length() > entry.getKey().getMaxLength()) {
+    /**
+     * Unregisters every {@link ValidatingTextInputLayout} found under the view group.
+     *
+     * @param viewGroup root of the removed subtree
+     */
+    public void unregisterAll(@NonNull final ViewGroup viewGroup) {
+        if (viewGroup instanceof ValidatingTextInputLayout) {
+            unregister((ValidatingTextInputLayout) viewGroup);
+            return;
+        }
 
-                if (validatorListener != null)
-                    validatorListener.onError(entry.getKey(), ValidationError.MAX_LENGTH, true);
+        for (int i = 0, count = viewGroup.getChildCount(); i < count; i++) {
+            View view = viewGroup.getChildAt(i);
 
-                errorLayoutList.add(entry.getKey());
-                validationErrorList.add(ValidationError.MAX_LENGTH);
-                isErrorFree = false;
+            if (view instanceof ValidatingTextInputLayout)
+                unregister((ValidatingTextInputLayout) view);
+            else if (view instanceof ViewGroup && (((ViewGroup) view).getChildCount() > 0))
+                unregisterAll((ViewGroup) view);
+        }
+    }
 
-            } else if (entry.getKey().isValidationRegexSet() && !text.matches(entry.getKey().getValidationRegex())) {
+    /**
+     * Keeps the registered layouts in step with the view hierarchy under the root
+     * {@link ViewGroup}: layouts in subtrees added later are registered, and those in removed
+     * subtrees are unregistered. Only the changed subtree is walked.
+     * <p>
+     * Tracking sets a {@link ViewGroup.OnHierarchyChangeListener} on every view group of the
+     * hierarchy, replacing any listener already set on them.
+     *
+     * @param enabled true to track the hierarchy, false to stop tracking
+     */
+    public void setHierarchyTrackingEnabled(final boolean enabled) {
+        ViewGroup viewGroup = rootViewGroup.get();
+        if (viewGroup == null)
+            return;
+
+        if (enabled)
+            hierarchyTracker.track(viewGroup);
+        else
+            hierarchyTracker.untrack(viewGroup);
+        isHierarchyTracked = enabled;
+    }
 
-                if (validatorListener != null)
-                    validatorListener.onError(entry.getKey(), ValidationError.REGEX, true);
+    /**
+     * Releases the views when the lifecycle is destroyed, see {@link #release()}. Bind to the
+     * lifecycle the views live for, i.e. {@code getViewLifecycleOwner()} in a fragment, whose
+     * views are destroyed on the back stack while the fragment itself is not.
+     * <p>
+     * A validator is bound to a single lifecycle at a time, binding again replaces the previous
+     * lifecycle.
+     *
+     * @param lifecycleOwner owner of the lifecycle of the views
+     */
+    public void bindToLifecycle(@NonNull final LifecycleOwner lifecycleOwner) {
+        unbindLifecycle();
 
-                errorLayoutList.add(entry.getKey());
-                validationErrorList.add(ValidationError.REGEX);
-                isErrorFree = false;
+        if (lifecycleOwner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            release();
+            return;
+        }
 
-            } else if (entry.getKey().isValidationTypeSet() && !text.matches(entry.getKey().getValidationTypeRegex())) {
+        lifecycleBinding = new LifecycleBinding(lifecycleOwner.getLifecycle());
+        lifecycleOwner.getLifecycle().addObserver(lifecycleBinding);
+    }
 
-                if (validatorListener != null)
-                    validatorListener.onError(entry.getKey(), ValidationError.VALIDATION_TYPE, true);
+    private void unbindLifecycle() {
+        if (lifecycleBinding == null)
+            return;
 
-                errorLayoutList.add(entry.getKey());
-                validationErrorList.add(ValidationError.VALIDATION_TYPE);
-                isErrorFree = false;
-            }
+        lifecycleBinding.lifecycle.removeObserver(lifecycleBinding);
+        lifecycleBinding = null;
+    }
 
-            updateErrorStatus(entry.getKey(), isErrorFree);
+    /**
+     * Detaches every text watcher and drops every reference the validator holds to the views:
+     * the layouts are unregistered without any callback, along with their cross field rules and
+     * validation groups, and the hierarchy is no longer tracked. Called on destroy of the
+     * lifecycle the validator is bound to.
+     * <p>
+     * The validator may be reused for a new view hierarchy, e.g. when the view of a fragment is
+     * created again, with {@link #registerAll(ViewGroup)}.
+     */
+    public void release() {
+        unbindLifecycle();
+
+        ViewGroup viewGroup = rootViewGroup.get();
+        if (viewGroup != null && isHierarchyTracked)
+            hierarchyTracker.untrack(viewGroup);
+        isHierarchyTracked = false;
+        rootViewGroup.clear();
+
+        for (int i = 0; i < fieldCount; i++) {
+            if (textWatchers[i] != null)
+                textWatchers[i].detach();
+            inputLayouts[i].setValidator(null, -1);
         }
+        Arrays.fill(inputLayouts, 0, fieldCount, null);
+        Arrays.fill(textWatchers, 0, fieldCount, null);
+        Arrays.fill(fieldGroups, 0, fieldCount, null);
+        errorFlags.clear();
+        cachedFlags.clear();
+        fieldCount = 0;
+        invalidFieldCount = 0;
+
+        crossFieldConstraints.clear();
+        validationGroups.clear();
+    }
 
-        if (errorLayoutList.isEmpty()) {
-            if (validatorListener != null)
-                validatorListener.onSuccess();
+    /**
+     * @return true if none of the fields is in error, answered from a running count of invalid
+     * fields without visiting them
+     */
+    public boolean isValid() {
+        return invalidFieldCount == 0;
+    }
 
-        } else {
-            if (validatorListener != null)
-                validatorListener.onValidateErrors(errorLayoutList, validationErrorList);
-        }
+    /**
+     * @return number of registered layouts
+     */
+    public int getFieldCount() {
+        return fieldCount;
     }
 
-    public void validate() {
-        List<ValidatingTextInputLayout> errorLayoutList = new ArrayList<>();
-        List<ValidationError> validationErrorList = new ArrayList<>();
+    /**
+     * @return the first layout in error in registration order, e.g. to scroll to it, or null if
+     * the form is valid
+     */
+    @Nullable
+    public ValidatingTextInputLayout getFirstInvalidLayout() {
+        int index = errorFlags.nextSetBit(0);
+        return index != -1 && index < fieldCount ? inputLayouts[index] : null;
+    }
 
-        for (Map.Entry<ValidatingTextInputLayout, Pair> entry : inputLayoutPairMap.entrySet()) {
-            String text = entry.getKey().getEditText().getText().toString();
-            boolean isErrorFree = true;
+    public void validateSilently() {
+        validateSilently(false);
+    }
 
-            if (!entry.getValue().isTextWatcherAttached())
-                attachTextWatcher(entry.getKey(), entry.getValue());
+    /**
+     * Validates every field without showing the errors on the layouts.
+     *
+     * @param forceRevalidation true to evaluate every field again, even if neither its text nor
+     *                          its rules changed since it was last validated
+     */
+    public void validateSilently(final boolean forceRevalidation) {
+        validate(null, false, forceRevalidation, ALL_ERRORS);
+    }
 
-            if (entry.getKey().isRequired() && TextUtils.isEmpty(text)) {
+    public void validate() {
+        validate(false);
+    }
 
-                if (validatorListener != null)
-                    validatorListener.onError(entry.getKey(), ValidationError.REQUIRED, true);
+    /**
+     * Validates every field and shows the errors on the layouts. Fields which are unchanged since
+     * their last validation report their cached result instead of being evaluated again.
+     *
+     * @param forceRevalidation true to evaluate every field again, even if neither its text nor
+     *                          its rules changed since it was last validated
+     */
+    public void validate(final boolean forceRevalidation) {
+        validate(null, true, forceRevalidation, ALL_ERRORS);
+    }
 
-                entry.getKey().setErrorEnabled(true);
-                entry.getKey().setError(entry.getKey().getRequiredErrorText());
-                errorLayoutList.add(entry.getKey());
-                validationErrorList.add(ValidationError.REQUIRED);
-                isErrorFree = false;
+    /**
+     * Validates the fields in registration order and shows the errors on the layouts, stopping as
+     * soon as maxErrors fields are found in error. Fields after the stop are neither evaluated nor
+     * touched, and {@link #getFirstInvalidLayout()} points at the first field in error.
+     *
+     * @param forceRevalidation true to evaluate the fields again even if unchanged
+     * @param maxErrors         number of invalid fields after which the validation stops, 1 to
+     *                          fail fast on the first one or {@link #ALL_ERRORS}
+     */
+    public void validate(final boolean forceRevalidation, final int maxErrors) {
+        validate(null, true, forceRevalidation, maxErrors);
+    }
 
-            } else if (entry.getKey().isMinLengthSet() && text.length() < entry.getKey().getMinLength()) {
+    /**
+     * Same as {@link #validate(boolean, int)} without showing the errors on the layouts.
+     */
+    public void validateSilently(final boolean forceRevalidation, final int maxErrors) {
+        validate(null, false, forceRevalidation, maxErrors);
+    }
 
-                if (validatorListener != null)
-                    validatorListener.onError(entry.getKey(), ValidationError.MIN_LENGTH, true);
+    public void validate(@NonNull final String group) {
+        validate(group, false);
+    }
 
-                entry.getKey().setErrorEnabled(true);
-                entry.getKey().setError(entry.getKey().getMinLengthErrorText());
-                errorLayoutList.add(entry.getKey());
-                validationErrorList.add(ValidationError.MIN_LENGTH);
-                isErrorFree = false;
+    /**
+     * Validates the fields of the group and of the groups nested in it, e.g. the current page of
+     * a wizard, and shows the errors on their layouts. Only the fields of the group are visited.
+     * The result is reported to the listener of the group, and the errors of the fields to the
+     * listener of the validator as well.
+     *
+     * @param group             path of the group
+     * @param forceRevalidation true to evaluate the fields again even if unchanged
+     * @throws IllegalArgumentException if no field joined the group and no listener was set on it
+     */
+    public void validate(@NonNull final String group, final boolean forceRevalidation) {
+        validate(findValidationGroup(group), true, forceRevalidation, ALL_ERRORS);
+    }
 
-            } else if (entry.getKey().isMaxLengthSet() && text.length() > entry.getKey().getMaxLength()) {
+    /**
+     * Same as {@link #validate(String)} without showing the errors on the layouts.
+     *
+     * @throws IllegalArgumentException if no field joined the group and no listener was set on it
+     */
+    public void validateSilently(@NonNull final String group) {
+        validate(findValidationGroup(group), false, false, ALL_ERRORS);
+    }
 
-                if (validatorListener != null)
-                    validatorListener.onError(entry.getKey(), ValidationError.MAX_LENGTH, true);
+    /**
+     * @return true if none of the fields of the group is in error, answered from a running count
+     * of its invalid fields
+     * @throws IllegalArgumentException if no field joined the group and no listener was set on it
+     */
+    public boolean isValid(@NonNull final String group) {
+        return findValidationGroup(group).invalidFieldCount == 0;
+    }
 
-                entry.getKey().setErrorEnabled(true);
-                entry.getKey().setError(entry.getKey().getMaxLengthErrorText());
-                errorLayoutList.add(entry.getKey());
-                validationErrorList.add(ValidationError.MAX_LENGTH);
-                isErrorFree = false;
+    /**
+     * @return number of registered layouts in the group and the groups nested in it
+     * @throws IllegalArgumentException if no field joined the group and no listener was set on it
+     */
+    public int getFieldCount(@NonNull final String group) {
+        return findValidationGroup(group).fieldCount;
+    }
 
-            } else if (entry.getKey().isValidationRegexSet() && !text.matches(entry.getKey().getValidationRegex())) {
+    /**
+     * Sets the listener of a group. It receives the errors and resolutions of the fields of the
+     * group, the results of {@link #validate(String)} on the group, and
+     * {@link ValidatorListener#onSuccess()} when the last invalid field of the group is fixed
+     * while typing.
+     *
+     * @param group    path of the group, which may have no field yet
+     * @param listener listener to be set, null to remove it
+     */
+    public void setGroupListener(@NonNull final String group, @Nullable final ValidatorListener listener) {
+        getValidationGroup(group).listener = listener;
+    }
 
-                if (validatorListener != null)
-                    validatorListener.onError(entry.getKey(), ValidationError.REGEX, true);
+    /**
+     * Moves every {@link ValidatingTextInputLayout} found under the view group to the validation
+     * group, walking only that subtree.
+     *
+     * @param viewGroup root of the subtree, e.g. the page of a wizard
+     * @param group     path of the group, null to remove the layouts from their group
+     * @see ValidatingTextInputLayout#setValidationGroup(String)
+     */
+    public void setValidationGroup(@NonNull final ViewGroup viewGroup, @Nullable final String group) {
+        if (viewGroup instanceof ValidatingTextInputLayout) {
+            ((ValidatingTextInputLayout) viewGroup).setValidationGroup(group);
+            return;
+        }
 
-                entry.getKey().setErrorEnabled(true);
-                entry.getKey().setError(entry.getKey().getValidationRegexErrorText());
-                errorLayoutList.add(entry.getKey());
-                validationErrorList.add(ValidationError.REGEX);
-                isErrorFree = false;
+        for (int i = 0, count = viewGroup.getChildCount(); i < count; i++) {
+            View view = viewGroup.getChildAt(i);
 
-            } else if (entry.getKey().isValidationTypeSet() && !text.matches(entry.getKey().getValidationTypeRegex())) {
+            if (view instanceof ValidatingTextInputLayout)
+                ((ValidatingTextInputLayout) view).setValidationGroup(group);
+            else if (view instanceof ViewGroup && (((ViewGroup) view).getChildCount() > 0))
+                setValidationGroup((ViewGroup) view, group);
+        }
+    }
 
-                if (validatorListener != null)
-                    validatorListener.onError(entry.getKey(), ValidationError.VALIDATION_TYPE, true);
+    /**
+     * Tells whether every field currently passes its rules, stopping at the first one which does
+     * not. Nothing is shown, no listener is called and no state is recorded, which makes it cheap
+     * enough to gate a submit button on every keystroke. Unchanged fields answer from their cached
+     * result and the built-in rules allocate nothing, except a validationRegex left to
+     * java.util.regex, whose engine copies the text into a String on every match on Android, and
+     * whatever the cross field rules allocate themselves.
+     *
+     * @return true if all the fields are valid
+     */
+    public boolean check() {
+        for (int i = 0; i < fieldCount; i++) {
+            if (getLocalErrorMask(i) != 0 || getCrossFieldErrorMask(i, 0) != 0)
+                return false;
+        }
+        return true;
+    }
 
-                entry.getKey().setErrorEnabled(true);
-                entry.getKey().setError(entry.getKey().getValidationTypeErrorText());
-                errorLayoutList.add(entry.getKey());
-                validationErrorList.add(ValidationError.VALIDATION_TYPE);
-                isErrorFree = false;
+    /**
+     * @param group group whose fields are validated, null for all the fields
+     */
+    private void validate(@Nullable final ValidationGroup group, final boolean showErrors,
+                          final boolean forceRevalidation, final int maxErrors) {
+        if (maxErrors < 1)
+            throw new IllegalArgumentException("maxErrors should be greater than 0");
+
+        // the fields of a group are validated in registration order as well
+        int count = fieldCount;
+        if (group != null) {
+            if (groupIndices.length < group.fieldCount)
+                groupIndices = new int[Math.max(group.fieldCount, fieldCount)];
+            count = collectGroupIndices(group, 0);
+            Arrays.sort(groupIndices, 0, count);
+        }
+        ValidatorListener resultListener = group != null ? group.listener : validatorListener;
+
+        // a listener may toggle the tracing, the section must be ended as it was begun
+        boolean isTraced = isTraceEnabled;
+        if (isTraced)
+            Trace.beginSection(ValidationInstrumentation.SECTION_VALIDATE_FORM);
+        long formStart = metricsListener != null ? System.nanoTime() : 0;
+
+        // allocated on the first error only, a valid form creates no garbage
+        List<ValidatingTextInputLayout> errorLayoutList = null;
+        List<ValidationError> validationErrorList = null;
+
+        try {
+            int validatedFieldCount = 0;
+            for (int n = 0; n < count; n++) {
+                int i = group != null ? groupIndices[n] : n;
+                ValidatingTextInputLayout inputLayout = inputLayouts[i];
+                long fieldStart = metricsListener != null ? System.nanoTime() : 0;
+                validatedFieldCount++;
+
+                if (textWatchers[i] == null)
+                    attachTextWatcher(i);
+                else
+                    textWatchers[i].cancelPendingValidation();
+
+                int errorMask;
+                boolean isCached = !forceRevalidation && isValidationCached(i);
+                if (isCached)
+                    errorMask = errorMasks[i];
+                else {
+                    errorMask = metricsListener == null
+                            ? ValidationEngine.evaluate(inputLayout.getValidationRules(), inputLayout.getEditText().getText(),
+                            ValidationEngine.UNKNOWN_DISALLOWED_COUNT, inputLayout.isShowAllErrors())
+                            : ValidationInstrumentation.evaluate(inputLayout, inputLayout.getEditText().getText(),
+                            ValidationEngine.UNKNOWN_DISALLOWED_COUNT, inputLayout.isShowAllErrors(), metricsListener);
+                    cacheValidation(i, errorMask);
+                }
+
+                errorMask |= showErrors ? prepareCrossFieldError(i, errorMask) : getCrossFieldErrorMask(i, errorMask);
+                ValidationError validationError = ValidationEngine.getFirstError(errorMask);
+                if (validationError != null) {
+                    notifyError(i, validationError, true);
+
+                    if (errorLayoutList == null) {
+                        errorLayoutList = new ArrayList<>();
+                        validationErrorList = new ArrayList<>();
+                    }
+                    errorLayoutList.add(inputLayout);
+                    validationErrorList.add(validationError);
+                }
+
+                if (showErrors)
+                    inputLayout.showValidationErrors(errorMask);
+
+                updateErrorStatus(i, validationError == null);
+
+                if (metricsListener != null)
+                    metricsListener.onFieldValidated(inputLayout, validationError, isCached, System.nanoTime() - fieldStart);
+
+                if (errorLayoutList != null && errorLayoutList.size() == maxErrors)
+                    break;
             }
 
-            updateErrorStatus(entry.getKey(), isErrorFree);
+            if (metricsListener != null)
+                metricsListener.onFormValidated(validatedFieldCount, errorLayoutList != null ? errorLayoutList.size() : 0,
+                        System.nanoTime() - formStart);
+        } finally {
+            // a failing rule or listener must not leave the section open
+            if (isTraced)
+                Trace.endSection();
         }
 
-        if (errorLayoutList.isEmpty()) {
-            if (validatorListener != null)
-                validatorListener.onSuccess();
+        if (errorLayoutList == null) {
+            if (resultListener != null)
+                resultListener.onSuccess();
 
         } else {
-            if (validatorListener != null)
-                validatorListener.onValidateErrors(errorLayoutList, validationErrorList);
+            if (resultListener != null)
+                resultListener.onValidateErrors(errorLayoutList, validationErrorList);
         }
     }
 
+    /**
+     * Sets the listener receiving the timings of every rule, field and form validation. While no
+     * listener is set, which is the default, validations take no measurement.
+     *
+     * @param metricsListener listener to be set, null to stop measuring
+     */
+    public void setMetricsListener(@Nullable final ValidationMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    @Nullable
+    @Override
+    public ValidationMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Wraps every form validation and every validation of a field while typing in an
+     * {@link Trace} section, so that they show up in system traces.
+     */
+    public void setTraceEnabled(final boolean traceEnabled) {
+        isTraceEnabled = traceEnabled;
+    }
+
+    @Override
+    public boolean isTraceEnabled() {
+        return isTraceEnabled;
+    }
+
     public void clearAllErrors() {
-        for (Map.Entry<ValidatingTextInputLayout, Pair> entry : inputLayoutPairMap.entrySet()) {
-            if (entry.getKey().isErrorEnabled())
-                entry.getKey().setErrorEnabled(false);
-        }
+        for (int i = 0; i < fieldCount; i++)
+            inputLayouts[i].showValidationError(null);
     }
 
     public void removeValidations() {
-        for (Map.Entry<ValidatingTextInputLayout, Pair> entry : inputLayoutPairMap.entrySet()) {
-            if (entry.getValue().isTextWatcherAttached())
-                entry.getKey().getEditText().removeTextChangedListener(entry.getValue().textWatcher);
+        for (int i = 0; i < fieldCount; i++) {
+            if (textWatchers[i] != null) {
+                textWatchers[i].detach();
+                // so that the next validation attaches a watcher again instead of trusting a stale one
+                textWatchers[i] = null;
+                cachedFlags.clear(i);
+            }
         }
     }
 
@@ -278,76 +734,575 @@ public class TextInputLayoutValidator implements ValidatingTextWatcher.OnStateCh
     }
 
     private void attachListeners(final boolean attachToAll) {
-        for (Map.Entry<ValidatingTextInputLayout, Pair> entry : inputLayoutPairMap.entrySet()) {
-            if (attachToAll || entry.getKey().isContinuousValidationRequired())
-                attachTextWatcher(entry.getKey(), entry.getValue());
+        for (int i = 0; i < fieldCount; i++) {
+            if (attachToAll || inputLayouts[i].isContinuousValidationRequired())
+                attachTextWatcher(i);
         }
     }
 
-    @Override
-    public void onError(ValidatingTextInputLayout textInputLayout, ValidationError validationError) {
-        if (validatorListener != null)
-            validatorListener.onError(textInputLayout, validationError, false);
+    /**
+     * Declares a rule of the field which depends on the text of other fields, e.g. a confirm
+     * password field matching the password field. The rule is only checked while the field and
+     * its dependencies pass their own rules, and is checked again whenever a dependency changes,
+     * along with the rules of the fields depending on the field in turn.
+     *
+     * @param inputLayout  field the rule is declared on
+     * @param rule         rule to be checked
+     * @param errorText    error shown on the field when the rule is not satisfied
+     * @param dependencies fields the rule depends on, in the order their texts are passed to the rule
+     * @throws IllegalArgumentException if a field is not registered with this validator, or if the
+     *                                  rule would make fields depend on themselves
+     */
+    public void addCrossFieldRule(@NonNull final ValidatingTextInputLayout inputLayout,
+                                  @NonNull final CrossFieldRule rule,
+                                  @NonNull final String errorText,
+                                  @NonNull final ValidatingTextInputLayout... dependencies) {
+        if (inputLayout.getValidator() != this)
+            throw new IllegalArgumentException("Field is not registered with this validator");
+        if (dependencies.length == 0)
+            throw new IllegalArgumentException("Cross field rule without dependencies");
+
+        for (ValidatingTextInputLayout dependency : dependencies)
+            if (dependency.getValidator() != this)
+                throw new IllegalArgumentException("Dependency is not registered with this validator");
+
+        List<CrossFieldConstraint> constraints = new ArrayList<>(crossFieldConstraints);
+        constraints.add(new CrossFieldConstraint(inputLayout, rule, errorText, dependencies));
+        sortConstraints(constraints);
+
+        crossFieldConstraints.clear();
+        crossFieldConstraints.addAll(constraints);
+    }
+
+    /**
+     * Removes all the cross field rules declared on the field.
+     */
+    public void removeCrossFieldRules(@NonNull final ValidatingTextInputLayout inputLayout) {
+        for (int i = crossFieldConstraints.size() - 1; i >= 0; i--)
+            if (crossFieldConstraints.get(i).inputLayout == inputLayout)
+                crossFieldConstraints.remove(i);
+    }
+
+    /**
+     * Sorts the constraints by the depth of their field in the dependency graph, a field without
+     * rules having depth 0 and a field with rules one more than its deepest dependency.
+     *
+     * @throws IllegalArgumentException if the graph has a cycle
+     */
+    private void sortConstraints(@NonNull final List<CrossFieldConstraint> constraints) {
+        final int[] depths = new int[fieldCount];
+        byte[] visitStates = new byte[fieldCount];
+
+        for (CrossFieldConstraint constraint : constraints)
+            computeDepth(constraint.inputLayout.getValidatorIndex(), constraints, depths, visitStates);
+
+        Collections.sort(constraints, (first, second) -> {
+            int firstIndex = first.inputLayout.getValidatorIndex();
+            int secondIndex = second.inputLayout.getValidatorIndex();
+            return depths[firstIndex] != depths[secondIndex] ? depths[firstIndex] - depths[secondIndex]
+                    : firstIndex - secondIndex;
+        });
+    }
+
+    private int computeDepth(final int index, @NonNull final List<CrossFieldConstraint> constraints,
+                             @NonNull final int[] depths, @NonNull final byte[] visitStates) {
+        if (visitStates[index] == VISITED)
+            return depths[index];
+        if (visitStates[index] == VISITING)
+            throw new IllegalArgumentException("Cross field rules form a cycle through the field at index " + index);
+
+        visitStates[index] = VISITING;
+        int depth = 0;
+        for (CrossFieldConstraint constraint : constraints) {
+            if (constraint.inputLayout != inputLayouts[index])
+                continue;
+
+            for (ValidatingTextInputLayout dependency : constraint.dependencies)
+                depth = Math.max(depth, computeDepth(dependency.getValidatorIndex(), constraints, depths, visitStates) + 1);
+        }
+        visitStates[index] = VISITED;
+        depths[index] = depth;
+        return depth;
+    }
+
+    /**
+     * @param localErrorMask errors of the field's own rules
+     * @return the first cross field rule of the field which is not satisfied, or null. Nothing is
+     * recorded, as check() relies on it.
+     */
+    @Nullable
+    private CrossFieldConstraint findFailedCrossFieldConstraint(final int index, final int localErrorMask) {
+        ValidatingTextInputLayout inputLayout = inputLayouts[index];
+        if (crossFieldConstraints.isEmpty() || (localErrorMask != 0 && !inputLayout.isShowAllErrors()))
+            return null;
+
+        // indexed loop, as check() must not allocate an iterator
+        for (int i = 0, size = crossFieldConstraints.size(); i < size; i++) {
+            CrossFieldConstraint constraint = crossFieldConstraints.get(i);
+            if (constraint.inputLayout != inputLayout || !areDependenciesValid(constraint))
+                continue;
+
+            if (!constraint.isSatisfied())
+                return constraint;
+        }
+        return null;
+    }
+
+    /**
+     * @param localErrorMask errors of the field's own rules
+     * @return the CROSS_FIELD bit if a cross field rule of the field is not satisfied, or 0
+     */
+    private int getCrossFieldErrorMask(final int index, final int localErrorMask) {
+        return findFailedCrossFieldConstraint(index, localErrorMask) != null
+                ? ValidationEngine.getMask(ValidationError.CROSS_FIELD) : 0;
+    }
+
+    /**
+     * Same as {@link #getCrossFieldErrorMask(int, int)}, also handing the error text of the failed
+     * rule to the layout, for the paths about to show the errors.
+     */
+    private int prepareCrossFieldError(final int index, final int localErrorMask) {
+        CrossFieldConstraint constraint = findFailedCrossFieldConstraint(index, localErrorMask);
+        if (constraint == null)
+            return 0;
+
+        inputLayouts[index].setCrossFieldErrorText(constraint.errorText);
+        return ValidationEngine.getMask(ValidationError.CROSS_FIELD);
+    }
+
+    private boolean areDependenciesValid(@NonNull final CrossFieldConstraint constraint) {
+        for (ValidatingTextInputLayout dependency : constraint.dependencies) {
+            int index = dependency.getValidatorIndex();
+            if (getLocalErrorMask(index) != 0 || getCrossFieldErrorMask(index, 0) != 0)
+                return false;
+        }
+        return true;
+    }
 
-        updateErrorStatus(textInputLayout, false);
+    /**
+     * @return errors of the field's own rules, cached ones if still valid
+     */
+    private int getLocalErrorMask(final int index) {
+        if (isValidationCached(index))
+            return errorMasks[index];
+
+        return ValidationEngine.evaluate(inputLayouts[index].getValidationRules(), inputLayouts[index].getEditText().getText(),
+                ValidationEngine.UNKNOWN_DISALLOWED_COUNT, false);
+    }
+
+    @Override
+    public void onError(ValidatingTextInputLayout textInputLayout, int errorMask) {
+        onValidated(textInputLayout.getValidatorIndex(), errorMask);
     }
 
     @Override
     public void onSuccess(ValidatingTextInputLayout textInputLayout) {
-        if (validatorListener != null)
-            validatorListener.onErrorResolved(textInputLayout);
+        onValidated(textInputLayout.getValidatorIndex(), 0);
+    }
 
-        updateErrorStatus(textInputLayout, true);
+    /**
+     * Handles the continuous validation of a field: completes its own errors with its cross field
+     * rules, shows and reports them, and checks again the fields which depend on it.
+     */
+    private void onValidated(final int index, final int localErrorMask) {
+        cacheValidation(index, localErrorMask);
+        int errorMask = localErrorMask | prepareCrossFieldError(index, localErrorMask);
+        inputLayouts[index].showValidationErrors(errorMask);
+        reportValidation(index, errorMask);
+
+        if (!crossFieldConstraints.isEmpty())
+            propagateChange(index);
+    }
 
-        for (Map.Entry<ValidatingTextInputLayout, Pair> entry : inputLayoutPairMap.entrySet())
-            if (!entry.getValue().isErrorFree())
-                return;
+    /**
+     * Checks again the cross field rules depending on the changed field, directly or through other
+     * fields whose status changed as a result. Only fields which were validated already are
+     * checked, so that an untouched field is not flagged because another one was edited.
+     */
+    private void propagateChange(final int changedIndex) {
+        changedFlags.clear();
+        changedFlags.set(changedIndex);
+
+        ValidatingTextInputLayout checkedLayout = null;
+        for (int i = 0, size = crossFieldConstraints.size(); i < size; i++) {
+            CrossFieldConstraint constraint = crossFieldConstraints.get(i);
+            int index = constraint.inputLayout.getValidatorIndex();
+            if (constraint.inputLayout == checkedLayout || !constraint.dependsOnAny(changedFlags)
+                    || !isValidationCached(index))
+                continue;
+
+            // the rules of a field are contiguous, the whole field is checked at its first one
+            checkedLayout = constraint.inputLayout;
+            int errorMask = errorMasks[index] | prepareCrossFieldError(index, errorMasks[index]);
+            constraint.inputLayout.showValidationErrors(errorMask);
+            if (reportValidation(index, errorMask))
+                changedFlags.set(index);
+        }
+    }
 
-        if (validatorListener != null)
+    /**
+     * Notifies the listener of the result of a continuous validation and records the status.
+     *
+     * @return true if the status of the field changed
+     */
+    private boolean reportValidation(final int index, final int errorMask) {
+        ValidatingTextInputLayout inputLayout = inputLayouts[index];
+
+        if (errorMask != 0) {
+            notifyError(index, ValidationEngine.getFirstError(errorMask), false);
+            return updateErrorStatus(index, false);
+        }
+
+        notifyErrorResolved(index);
+        if (!updateErrorStatus(index, true))
+            return false;
+
+        // only the field that turned the form or a group valid reports the success
+        for (ValidationGroup group = fieldGroups[index]; group != null; group = group.parent)
+            if (group.invalidFieldCount == 0 && group.listener != null)
+                group.listener.onSuccess();
+        if (invalidFieldCount == 0 && validatorListener != null)
             validatorListener.onSuccess();
+        return true;
+    }
+
+    /**
+     * Records the error status of the field and keeps invalidFieldCount in step with it.
+     *
+     * @return true if the status of the field changed
+     */
+    private boolean updateErrorStatus(final int index, final boolean isErrorFree) {
+        if (errorFlags.get(index) != isErrorFree)
+            return false;
+
+        errorFlags.set(index, !isErrorFree);
+        invalidFieldCount += isErrorFree ? -1 : 1;
+        for (ValidationGroup group = fieldGroups[index]; group != null; group = group.parent)
+            group.invalidFieldCount += isErrorFree ? -1 : 1;
+        return true;
+    }
+
+    private void notifyError(final int index, @NonNull final ValidationError validationError, final boolean isErrorOnValidate) {
+        if (validatorListener != null)
+            validatorListener.onError(inputLayouts[index], validationError, isErrorOnValidate);
+
+        for (ValidationGroup group = fieldGroups[index]; group != null; group = group.parent)
+            if (group.listener != null)
+                group.listener.onError(inputLayouts[index], validationError, isErrorOnValidate);
+    }
+
+    private void notifyErrorResolved(final int index) {
+        if (validatorListener != null)
+            validatorListener.onErrorResolved(inputLayouts[index]);
+
+        for (ValidationGroup group = fieldGroups[index]; group != null; group = group.parent)
+            if (group.listener != null)
+                group.listener.onErrorResolved(inputLayouts[index]);
+    }
+
+    /**
+     * Moves the field to the group set on its layout.
+     */
+    void onValidationGroupChanged(@NonNull final ValidatingTextInputLayout inputLayout) {
+        int index = inputLayout.getValidatorIndex();
+        leaveGroup(index);
+        joinGroup(index, inputLayout.getValidationGroup());
+    }
+
+    /**
+     * @return the existing group of the path, which is never created, so that a misspelt path
+     * does not pass as an empty group
+     * @throws IllegalArgumentException if the validator knows no such group
+     */
+    @NonNull
+    private ValidationGroup findValidationGroup(@NonNull final String path) {
+        ValidationGroup group = validationGroups.get(path);
+        if (group == null)
+            throw new IllegalArgumentException("Unknown validation group: " + path);
+        return group;
     }
 
-    private void updateErrorStatus(ValidatingTextInputLayout textInputLayout, boolean isErrorFree) {
-        synchronized (inputLayoutPairMap) {
-            inputLayoutPairMap.get(textInputLayout).setErrorFree(isErrorFree);
-            if (isErrorFree)
-                textInputLayout.setErrorEnabled(true);
+    /**
+     * @return the group of the path, created along with its enclosing groups if new
+     */
+    @NonNull
+    private ValidationGroup getValidationGroup(@NonNull final String path) {
+        ValidationGroup group = validationGroups.get(path);
+        if (group == null) {
+            int separator = path.lastIndexOf('/');
+            group = new ValidationGroup(separator > 0 ? getValidationGroup(path.substring(0, separator)) : null);
+            validationGroups.put(path, group);
+        }
+        return group;
+    }
+
+    private void joinGroup(final int index, @Nullable final String path) {
+        if (TextUtils.isEmpty(path)) {
+            fieldGroups[index] = null;
+            return;
+        }
+
+        ValidationGroup group = getValidationGroup(path);
+        group.members.add(inputLayouts[index]);
+        fieldGroups[index] = group;
+
+        boolean isInError = errorFlags.get(index);
+        for (; group != null; group = group.parent) {
+            group.fieldCount++;
+            if (isInError)
+                group.invalidFieldCount++;
+        }
+    }
+
+    private void leaveGroup(final int index) {
+        ValidationGroup group = fieldGroups[index];
+        if (group == null)
+            return;
+
+        group.members.remove(inputLayouts[index]);
+        fieldGroups[index] = null;
+
+        boolean isInError = errorFlags.get(index);
+        for (; group != null; group = group.parent) {
+            group.fieldCount--;
+            if (isInError && --group.invalidFieldCount == 0 && group.listener != null)
+                group.listener.onSuccess();
+        }
+    }
+
+    /**
+     * Lists the indexes of the fields of the group and its nested groups into groupIndices.
+     *
+     * @return number of indexes listed so far
+     */
+    private int collectGroupIndices(@NonNull final ValidationGroup group, int count) {
+        for (int i = 0, size = group.members.size(); i < size; i++)
+            groupIndices[count++] = group.members.get(i).getValidatorIndex();
+        for (int i = 0, size = group.children.size(); i < size; i++)
+            count = collectGroupIndices(group.children.get(i), count);
+        return count;
+    }
+
+    /**
+     * Saves the cached validation result of the field into the view state of its layout, along
+     * with what it was computed for.
+     */
+    void saveValidation(@NonNull final ValidatingTextInputLayout inputLayout,
+                        @NonNull final ValidatingTextInputLayout.SavedState savedState) {
+        int index = inputLayout.getValidatorIndex();
+        savedState.isValidated = isValidationCached(index);
+        if (!savedState.isValidated)
+            return;
+
+        savedState.errorMask = errorMasks[index];
+        savedState.isInError = errorFlags.get(index);
+        savedState.textHash = hashText(inputLayout.getEditText().getText());
+        savedState.rulesHash = getRulesHash(inputLayout);
+    }
+
+    /**
+     * Takes back the validation result saved with the view state of the layout, provided the
+     * restored text and the rules are the ones it was computed for, so that the field counts as
+     * validated without evaluating its rules. Otherwise the field is validated as it would have
+     * been on the restored edit.
+     *
+     * @param savedState restored state, null if the layout restored none
+     */
+    void restoreValidation(@NonNull final ValidatingTextInputLayout inputLayout,
+                           @Nullable final ValidatingTextInputLayout.SavedState savedState) {
+        int index = inputLayout.getValidatorIndex();
+        boolean isResultRestored = savedState != null && savedState.isValidated
+                && savedState.rulesHash == getRulesHash(inputLayout)
+                && savedState.textHash == hashText(inputLayout.getEditText().getText());
+
+        if (isResultRestored) {
+            if (textWatchers[index] == null)
+                attachTextWatcher(index);
+
+            cacheValidation(index, savedState.errorMask);
+            updateErrorStatus(index, !savedState.isInError);
+        }
+
+        if (textWatchers[index] != null)
+            textWatchers[index].onStateRestored(isResultRestored);
+    }
+
+    private void restorePendingValidation(final int index) {
+        ValidatingTextInputLayout.SavedState savedState = inputLayouts[index].takeRestoredState();
+        if (savedState != null)
+            restoreValidation(inputLayouts[index], savedState);
+    }
+
+    private static int getRulesHash(@NonNull final ValidatingTextInputLayout inputLayout) {
+        // the mode decides whether the cached mask holds the first or every failed rule
+        return 31 * inputLayout.getValidationRules().hashCode() + (inputLayout.isShowAllErrors() ? 1 : 0);
+    }
+
+    /**
+     * @return same hash as {@link String#hashCode()} of the text, without copying it
+     */
+    private static int hashText(@NonNull final CharSequence text) {
+        int hash = 0;
+        for (int i = 0, length = text.length(); i < length; i++)
+            hash = 31 * hash + text.charAt(i);
+        return hash;
+    }
+
+    /**
+     * A result stays valid while the watcher of the field is listening and has seen no edit since,
+     * and the rules of the layout are unchanged.
+     */
+    private boolean isValidationCached(final int index) {
+        ValidatingTextWatcher textWatcher = textWatchers[index];
+        return cachedFlags.get(index)
+                && textWatcher != null
+                && textWatcher.isAttached()
+                && validatedEditGenerations[index] == textWatcher.getEditGeneration()
+                && validatedRuleGenerations[index] == inputLayouts[index].getRuleGeneration();
+    }
+
+    private void cacheValidation(final int index, final int errorMask) {
+        ValidatingTextWatcher textWatcher = textWatchers[index];
+        cachedFlags.set(index, textWatcher != null);
+        errorMasks[index] = errorMask;
+        validatedEditGenerations[index] = textWatcher != null ? textWatcher.getEditGeneration() : 0;
+        validatedRuleGenerations[index] = inputLayouts[index].getRuleGeneration();
+    }
+
+    private void attachTextWatcher(final int index) {
+        // attaching twice would validate every edit twice
+        if (textWatchers[index] != null && textWatchers[index].isAttached())
+            return;
+
+        ValidatingTextWatcher textWatcher = new ValidatingTextWatcher(inputLayouts[index], this);
+        textWatcher.attach();
+        textWatchers[index] = textWatcher;
+    }
+
+    /**
+     * Releases the validator on destroy of the lifecycle. Kept apart from the validator so that
+     * the lifecycle classes are only loaded by the apps binding to one.
+     */
+    private final class LifecycleBinding implements LifecycleEventObserver {
+        private final Lifecycle lifecycle;
+
+        LifecycleBinding(@NonNull final Lifecycle lifecycle) {
+            this.lifecycle = lifecycle;
+        }
+
+        @Override
+        public void onStateChanged(@NonNull final LifecycleOwner source, @NonNull final Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY)
+                release();
         }
     }
 
-    private void attachTextWatcher(ValidatingTextInputLayout inputLayout, Pair pair) {
-        ValidatingTextWatcher textWatcher = new ValidatingTextWatcher(inputLayout, this);
-        inputLayout.getEditText().addTextChangedListener(textWatcher);
-        pair.setTextWatcher(textWatcher);
+    /**
+     * Fields validated together, counted along with those of the nested groups.
+     */
+    private static final class ValidationGroup {
+        private final ValidationGroup parent;
+        private final List<ValidationGroup> children;
+        private final List<ValidatingTextInputLayout> members;
+        private int fieldCount;
+        private int invalidFieldCount;
+        private ValidatorListener listener;
+
+        ValidationGroup(@Nullable final ValidationGroup parent) {
+            this.parent = parent;
+            this.children = new ArrayList<>();
+            this.members = new ArrayList<>();
+            if (parent != null)
+                parent.children.add(this);
+        }
     }
 
-    private static class Pair {
-        private ValidatingTextWatcher textWatcher;
-        private boolean isErrorFree;
+    private static final class CrossFieldConstraint {
+        private final ValidatingTextInputLayout inputLayout;
+        private final CrossFieldRule rule;
+        private final String errorText;
+        private final ValidatingTextInputLayout[] dependencies;
+        // reused for every check, the validator only runs on the main thread
+        private final CharSequence[] dependencyTexts;
+
+        CrossFieldConstraint(@NonNull final ValidatingTextInputLayout inputLayout, @NonNull final CrossFieldRule rule,
+                             @NonNull final String errorText, @NonNull final ValidatingTextInputLayout[] dependencies) {
+            this.inputLayout = inputLayout;
+            this.rule = rule;
+            this.errorText = errorText;
+            this.dependencies = dependencies.clone();
+            this.dependencyTexts = new CharSequence[dependencies.length];
+        }
 
-        public Pair(boolean isValidationFree) {
-            this.textWatcher = null;
-            this.isErrorFree = isValidationFree;
+        boolean isSatisfied() {
+            for (int i = 0; i < dependencies.length; i++)
+                dependencyTexts[i] = dependencies[i].getEditText().getText();
+
+            boolean isSatisfied = rule.isSatisfied(inputLayout.getEditText().getText(), dependencyTexts);
+            Arrays.fill(dependencyTexts, null);
+            return isSatisfied;
         }
 
-        public ValidatingTextWatcher getTextWatcher() {
-            return textWatcher;
+        boolean dependsOnAny(@NonNull final BitSet fieldFlags) {
+            for (ValidatingTextInputLayout dependency : dependencies)
+                if (fieldFlags.get(dependency.getValidatorIndex()))
+                    return true;
+
+            return false;
         }
 
-        public void setTextWatcher(ValidatingTextWatcher textWatcher) {
-            this.textWatcher = textWatcher;
+        boolean involves(@NonNull final ValidatingTextInputLayout layout) {
+            if (inputLayout == layout)
+                return true;
+
+            for (ValidatingTextInputLayout dependency : dependencies)
+                if (dependency == layout)
+                    return true;
+
+            return false;
         }
+    }
+
+    private class HierarchyTracker implements ViewGroup.OnHierarchyChangeListener {
 
-        public boolean isErrorFree() {
-            return isErrorFree;
+        void track(@NonNull final ViewGroup viewGroup) {
+            viewGroup.setOnHierarchyChangeListener(this);
+
+            for (int i = 0, count = viewGroup.getChildCount(); i < count; i++) {
+                View view = viewGroup.getChildAt(i);
+                if (view instanceof ViewGroup && !(view instanceof ValidatingTextInputLayout))
+                    track((ViewGroup) view);
+            }
+        }
+
+        void untrack(@NonNull final ViewGroup viewGroup) {
+            viewGroup.setOnHierarchyChangeListener(null);
+
+            for (int i = 0, count = viewGroup.getChildCount(); i < count; i++) {
+                View view = viewGroup.getChildAt(i);
+                if (view instanceof ViewGroup && !(view instanceof ValidatingTextInputLayout))
+                    untrack((ViewGroup) view);
+            }
         }
 
-        public void setErrorFree(boolean errorFree) {
-            isErrorFree = errorFree;
+        @Override
+        public void onChildViewAdded(View parent, View child) {
+            if (child instanceof ValidatingTextInputLayout)
+                register((ValidatingTextInputLayout) child);
+            else if (child instanceof ViewGroup) {
+                track((ViewGroup) child);
+                registerAll((ViewGroup) child);
+            }
         }
 
-        public boolean isTextWatcherAttached() {
-            return textWatcher != null;
+        @Override
+        public void onChildViewRemoved(View parent, View child) {
+            if (child instanceof ValidatingTextInputLayout)
+                unregister((ValidatingTextInputLayout) child);
+            else if (child instanceof ViewGroup) {
+                untrack((ViewGroup) child);
+                unregisterAll((ViewGroup) child);
+            }
         }
     }
 
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+
+/**
+ * <h1>A full-text matcher used by {@link ValidatingTextInputLayout} to check the input against a
+ * validation rule without going through {@link String#matches(String)}</h1>
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+public interface TextMatcher {
+
+    /**
+     * @param text text to be matched, may be a live {@link android.text.Editable}
+     * @return true if the whole text satisfies this matcher
+     */
+    boolean matches(@NonNull final CharSequence text);
+}
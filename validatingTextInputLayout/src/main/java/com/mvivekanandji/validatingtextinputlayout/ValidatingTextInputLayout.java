@@ -17,34 +17,48 @@ package com.mvivekanandji.validatingtextinputlayout;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.InputFilter;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.customview.view.AbsSavedState;
 
 import com.google.android.material.textfield.TextInputLayout;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * <h1>An advanced auto validating implementation of {@link TextInputLayout} to be used in
  * association with {@link TextInputLayoutValidator}</h1>
+ * <p>
+ * A layout with an id saves the last validation result of its field along with its view state,
+ * so that a validator rebuilt after a configuration change or process death takes the result
+ * back without evaluating the rules again.
  *
  * @author vivekanand
  * @version 0.2.0
  */
 public class ValidatingTextInputLayout extends TextInputLayout {
 
-    private static final String REGEX_ALPHA = "\\p{Alpha}+";
-    private static final String REGEX_ALPHA_WITH_SYMBOL = "[\\p{Alpha}\\p{Punct}]+";
-    private static final String REGEX_NUMERIC = "\\p{Digit}+";
-    private static final String REGEX_NUMERIC_WITH_SYMBOL = "[\\p{Digit}\\p{Punct}]+";
-    private static final String REGEX_ALPHA_NUMERIC = "\\p{Alnum}+";
-    private static final String REGEX_ALPHA_NUMERIC_WITH_SYMBOL = "\\p{Graph}+";
-    private static final String REGEX_EMAIL = "^[_A-Za-z0-9-]+(\\.[_A-Za-z0-9-]+)*@[A-Za-z0-9]+ (\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$";
-    private static final String REGEX_IP = "^([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.\n ([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])$";
+    private static final String TAG = "ValidatingTextInputLayout";
+    private static final int DEFAULT_VALIDATION_DEBOUNCE_DELAY = 300;
 
     public enum ValidationCheck {
         ON_TRIGGER,
         ALWAYS,
+        DEBOUNCED,
     }
 
     public enum ValidationType {
@@ -56,21 +70,37 @@ public class ValidatingTextInputLayout extends TextInputLayout {
         ALPHA_NUMERIC,
         ALPHA_NUMERIC_WITH_SYMBOL,
         EMAIL,
-        IP;
-    }
-
-    private boolean required;
-    private String requiredErrorText;
-    private int minLength;
-    private String minLengthErrorText;
-    private int maxLength;
-    private String maxLengthErrorText;
-    private String validationRegex;
-    private String validationRegexErrorText;
-    private ValidationType validationType;
-    private String validationTypeErrorText;
-    private boolean defaultValidated;
-    private ValidationCheck validationCheck;
+        IP,
+        /**
+         * Characters of the validationCharClass only, e.g. {@code [0-9a-fA-F]} for hex digits
+         */
+        CUSTOM;
+    }
+
+    private ValidationRules validationRules = ValidationRules.builder().build().intern();
+    private ValidationCheck validationCheck = ValidationCheck.ON_TRIGGER;
+    private int validationDebounceDelay = DEFAULT_VALIDATION_DEBOUNCE_DELAY;
+
+    private boolean showAllErrors;
+    // installed on the EditText while invalid input is prevented, null otherwise
+    private ValidationInputFilter inputFilter;
+    private String validationGroup;
+
+    private int displayedErrorMask;
+    // error text of the failed cross field rule, set by the validator before showing the error
+    private String crossFieldErrorText;
+    private int errorUpdateCount;
+
+    // validator this layout is registered with and its index there, kept by the validator
+    private TextInputLayoutValidator validator;
+    private int validatorIndex = -1;
+
+    // bumped whenever the rules are replaced, invalidating validation results cached for the old rules
+    private int ruleGeneration;
+
+    // set while the view state is restored, and the restored state until a validator takes it
+    private boolean isRestoringState;
+    private SavedState restoredState;
 
     public ValidatingTextInputLayout(@NonNull Context context) {
         super(context);
@@ -82,36 +112,29 @@ public class ValidatingTextInputLayout extends TextInputLayout {
         TypedArray typedArray = getContext().
                 obtainStyledAttributes(attrs, R.styleable.ValidatingTextInputLayout, 0, 0);
 
-        required = typedArray.getBoolean(R.styleable.ValidatingTextInputLayout_required, false);
-        if (typedArray.hasValue(R.styleable.ValidatingTextInputLayout_requiredErrorText))
-            requiredErrorText = typedArray.getString(R.styleable.ValidatingTextInputLayout_requiredErrorText);
-        else requiredErrorText = "Required*";
-
-        minLength = typedArray.getInt(R.styleable.ValidatingTextInputLayout_minLength, -1);
-        if (typedArray.hasValue(R.styleable.ValidatingTextInputLayout_minLengthErrorText))
-            minLengthErrorText = typedArray.getString(R.styleable.ValidatingTextInputLayout_minLengthErrorText);
-        else minLengthErrorText = "Minimum length should be greater than " + minLength;
-
-        maxLength = typedArray.getInt(R.styleable.ValidatingTextInputLayout_maxLength, -1);
-        if (typedArray.hasValue(R.styleable.ValidatingTextInputLayout_maxLengthErrorText))
-            maxLengthErrorText = typedArray.getString(R.styleable.ValidatingTextInputLayout_maxLengthErrorText);
-        else maxLengthErrorText = "Maximum length should be less than " + maxLength;
-
-        if (typedArray.hasValue(R.styleable.ValidatingTextInputLayout_validationRegex))
-            validationRegex = typedArray.getString(R.styleable.ValidatingTextInputLayout_validationRegex);
-        else validationRegex = null;
+        ValidationRules.Builder builder = ValidationRules.builder()
+                .setRequired(typedArray.getBoolean(R.styleable.ValidatingTextInputLayout_required, false))
+                .setRequiredErrorText(typedArray.getString(R.styleable.ValidatingTextInputLayout_requiredErrorText))
+                .setMinLength(typedArray.getInt(R.styleable.ValidatingTextInputLayout_minLength, -1))
+                .setMinLengthErrorText(typedArray.getString(R.styleable.ValidatingTextInputLayout_minLengthErrorText))
+                .setMaxLength(typedArray.getInt(R.styleable.ValidatingTextInputLayout_maxLength, -1))
+                .setMaxLengthErrorText(typedArray.getString(R.styleable.ValidatingTextInputLayout_maxLengthErrorText))
+                .setValidationRegex(typedArray.getString(R.styleable.ValidatingTextInputLayout_validationRegex))
+                .setValidationRegexErrorText(typedArray.getString(R.styleable.ValidatingTextInputLayout_validationRegexErrorText))
+                .setValidationRegexStepBudget(typedArray.getInt(R.styleable.ValidatingTextInputLayout_validationRegexStepBudget, -1))
+                .setValidationCharClass(typedArray.getString(R.styleable.ValidatingTextInputLayout_validationCharClass))
+                .setValidationType(ValidationType.values()[typedArray.getInt(R.styleable.ValidatingTextInputLayout_validationType, 0)])
+                .setValidationTypeErrorText(typedArray.getString(R.styleable.ValidatingTextInputLayout_validationTypeErrorText))
+                .setDefaultValidated(typedArray.getBoolean(R.styleable.ValidatingTextInputLayout_defaultValidated, false));
+        // layouts sharing a style share their rules, compiled regex and error texts included
+        validationRules = builder.build().intern();
+        reportRegexHazard();
 
-        if (typedArray.hasValue(R.styleable.ValidatingTextInputLayout_validationRegexErrorText))
-            validationRegexErrorText = typedArray.getString(R.styleable.ValidatingTextInputLayout_validationRegexErrorText);
-        else validationRegexErrorText = "Regex Validation Failed!";
-
-        validationType = ValidationType.values()[typedArray.getInt(R.styleable.ValidatingTextInputLayout_validationType, 0)];
-        if (typedArray.hasValue(R.styleable.ValidatingTextInputLayout_validationTypeErrorText))
-            validationTypeErrorText = typedArray.getString(R.styleable.ValidatingTextInputLayout_validationTypeErrorText);
-        else validationTypeErrorText = validationType.toString() + " Validation Failed!";
-
-        defaultValidated = typedArray.getBoolean(R.styleable.ValidatingTextInputLayout_defaultValidated, false);
         validationCheck = ValidationCheck.values()[typedArray.getInt(R.styleable.ValidatingTextInputLayout_validationCheck, 0)];
+        validationDebounceDelay = typedArray.getInt(R.styleable.ValidatingTextInputLayout_validationDebounceDelay, DEFAULT_VALIDATION_DEBOUNCE_DELAY);
+        showAllErrors = typedArray.getBoolean(R.styleable.ValidatingTextInputLayout_showAllErrors, false);
+        setPreventInvalidInput(typedArray.getBoolean(R.styleable.ValidatingTextInputLayout_preventInvalidInput, false));
+        validationGroup = typedArray.getString(R.styleable.ValidatingTextInputLayout_validationGroup);
 
         typedArray.recycle();
     }
@@ -121,91 +144,118 @@ public class ValidatingTextInputLayout extends TextInputLayout {
     }
 
     public boolean isRequired() {
-        return required;
+        return validationRules.isRequired();
     }
 
     public void setRequired(boolean required) {
-        this.required = required;
+        setValidationRules(validationRules.buildUpon().setRequired(required).build());
     }
 
     public String getRequiredErrorText() {
-        return requiredErrorText;
+        return validationRules.getRequiredErrorText();
     }
 
     public void setRequiredErrorText(String requiredErrorText) {
-        this.requiredErrorText = requiredErrorText;
+        setValidationRules(validationRules.buildUpon().setRequiredErrorText(requiredErrorText).build());
     }
 
     public int getMinLength() {
-        return minLength;
+        return validationRules.getMinLength();
     }
 
     public void setMinLength(int minLength) {
-        this.minLength = minLength;
+        setValidationRules(validationRules.buildUpon().setMinLength(minLength).build());
     }
 
     public String getMinLengthErrorText() {
-        return minLengthErrorText;
+        return validationRules.getMinLengthErrorText();
     }
 
     public void setMinLengthErrorText(String minLengthErrorText) {
-        this.minLengthErrorText = minLengthErrorText;
+        setValidationRules(validationRules.buildUpon().setMinLengthErrorText(minLengthErrorText).build());
     }
 
     public int getMaxLength() {
-        return maxLength;
+        return validationRules.getMaxLength();
     }
 
     public void setMaxLength(int maxLength) {
-        this.maxLength = maxLength;
+        setValidationRules(validationRules.buildUpon().setMaxLength(maxLength).build());
     }
 
     public String getMaxLengthErrorText() {
-        return maxLengthErrorText;
+        return validationRules.getMaxLengthErrorText();
     }
 
     public void setMaxLengthErrorText(String maxLengthErrorText) {
-        this.maxLengthErrorText = maxLengthErrorText;
+        setValidationRules(validationRules.buildUpon().setMaxLengthErrorText(maxLengthErrorText).build());
     }
 
     public String getValidationRegex() {
-        return validationRegex;
+        return validationRules.getValidationRegex();
     }
 
     public void setValidationRegex(String validationRegex) {
-        this.validationRegex = validationRegex;
+        setValidationRules(validationRules.buildUpon().setValidationRegex(validationRegex).build());
+        reportRegexHazard();
     }
 
     public String getValidationRegexErrorText() {
-        return validationRegexErrorText;
+        return validationRules.getValidationRegexErrorText();
     }
 
     public void setValidationRegexErrorText(String validationRegexErrorText) {
-        this.validationRegexErrorText = validationRegexErrorText;
+        setValidationRules(validationRules.buildUpon().setValidationRegexErrorText(validationRegexErrorText).build());
+    }
+
+    public int getValidationRegexStepBudget() {
+        return validationRules.getValidationRegexStepBudget();
+    }
+
+    /**
+     * @param validationRegexStepBudget maximum work of matching the validationRegex against the
+     *                                  text, -1 for no limit
+     * @see ValidationRules.Builder#setValidationRegexStepBudget(int)
+     */
+    public void setValidationRegexStepBudget(int validationRegexStepBudget) {
+        setValidationRules(validationRules.buildUpon().setValidationRegexStepBudget(validationRegexStepBudget).build());
     }
 
     public ValidationType getValidationType() {
-        return validationType;
+        return validationRules.getValidationType();
     }
 
     public void setValidationType(ValidationType validationType) {
-        this.validationType = validationType;
+        setValidationRules(validationRules.buildUpon().setValidationType(validationType).build());
+    }
+
+    public String getValidationCharClass() {
+        return validationRules.getValidationCharClass();
+    }
+
+    /**
+     * @param validationCharClass characters allowed by the {@link ValidationType#CUSTOM}
+     *                            validation type
+     * @see ValidationRules.Builder#setValidationCharClass(String)
+     */
+    public void setValidationCharClass(String validationCharClass) {
+        setValidationRules(validationRules.buildUpon().setValidationCharClass(validationCharClass).build());
     }
 
     public String getValidationTypeErrorText() {
-        return validationTypeErrorText;
+        return validationRules.getValidationTypeErrorText();
     }
 
     public void setValidationTypeErrorText(String validationTypeErrorText) {
-        this.validationTypeErrorText = validationTypeErrorText;
+        setValidationRules(validationRules.buildUpon().setValidationTypeErrorText(validationTypeErrorText).build());
     }
 
     public boolean isDefaultValidated() {
-        return defaultValidated;
+        return validationRules.isDefaultValidated();
     }
 
     public void setDefaultValidated(boolean defaultValidated) {
-        this.defaultValidated = defaultValidated;
+        setValidationRules(validationRules.buildUpon().setDefaultValidated(defaultValidated).build());
     }
 
     public ValidationCheck getValidationCheck() {
@@ -216,62 +266,400 @@ public class ValidatingTextInputLayout extends TextInputLayout {
         this.validationCheck = validationCheck;
     }
 
+    /**
+     * @return idle time in milliseconds after the last edit before a
+     * {@link ValidationCheck#DEBOUNCED} field is validated
+     */
+    public int getValidationDebounceDelay() {
+        return validationDebounceDelay;
+    }
+
+    public void setValidationDebounceDelay(int validationDebounceDelay) {
+        this.validationDebounceDelay = validationDebounceDelay;
+    }
+
+    /**
+     * @return true if every failed rule is shown, one error text per line, instead of only the
+     * first one
+     */
+    public boolean isShowAllErrors() {
+        return showAllErrors;
+    }
+
+    public void setShowAllErrors(boolean showAllErrors) {
+        if (showAllErrors == this.showAllErrors)
+            return;
+
+        this.showAllErrors = showAllErrors;
+        // cached results hold the failed rules found in the previous mode
+        ruleGeneration++;
+    }
+
+    /**
+     * @return true if characters outside the class of the validation type and text past the
+     * maxLength are rejected as they are typed or pasted
+     */
+    public boolean isPreventInvalidInput() {
+        return inputFilter != null;
+    }
+
+    /**
+     * Rejects the input the rules would fail before it reaches the text, instead of letting it in
+     * and showing an error: characters outside the class of a character class validation type
+     * are dropped, and text past the maxLength is cut. The other rules are validated as usual.
+     * The filter is added to those already set on the EditText.
+     *
+     * @param preventInvalidInput true to filter the input, false to let any input in
+     */
+    public void setPreventInvalidInput(boolean preventInvalidInput) {
+        if (preventInvalidInput == isPreventInvalidInput())
+            return;
+
+        if (preventInvalidInput) {
+            inputFilter = new ValidationInputFilter(this);
+            installInputFilter();
+        } else {
+            uninstallInputFilter();
+            inputFilter = null;
+        }
+    }
+
+    @Override
+    public void addView(View child, int index, ViewGroup.LayoutParams params) {
+        super.addView(child, index, params);
+        // the EditText of an inflated layout is only added after the attributes are read
+        if (child instanceof EditText && inputFilter != null)
+            installInputFilter();
+    }
+
+    private void installInputFilter() {
+        EditText editText = getEditText();
+        if (editText == null)
+            return;
+
+        InputFilter[] filters = editText.getFilters();
+        for (InputFilter filter : filters)
+            if (filter == inputFilter)
+                return;
+
+        InputFilter[] installed = Arrays.copyOf(filters, filters.length + 1);
+        installed[filters.length] = inputFilter;
+        editText.setFilters(installed);
+    }
+
+    private void uninstallInputFilter() {
+        EditText editText = getEditText();
+        if (editText == null)
+            return;
+
+        List<InputFilter> filters = new ArrayList<>(Arrays.asList(editText.getFilters()));
+        if (filters.remove(inputFilter))
+            editText.setFilters(filters.toArray(new InputFilter[0]));
+    }
+
+    /**
+     * @return path of the validation group of this layout, e.g. "checkout/address" for the
+     * address group nested in the checkout group, null if it belongs to no group
+     */
+    @Nullable
+    public String getValidationGroup() {
+        return validationGroup;
+    }
+
+    /**
+     * Moves this layout to a validation group, which a {@link TextInputLayoutValidator} validates
+     * on its own with {@link TextInputLayoutValidator#validate(String)}. The layout also belongs
+     * to every group enclosing it.
+     *
+     * @param validationGroup path of the group, its segments separated by '/', null for none
+     */
+    public void setValidationGroup(@Nullable final String validationGroup) {
+        if (TextUtils.equals(validationGroup, this.validationGroup))
+            return;
+
+        this.validationGroup = validationGroup;
+        if (validator != null)
+            validator.onValidationGroupChanged(this);
+    }
+
+    /**
+     * @return the rules of this layout. Rules are immutable, so every setter replaces them
+     */
+    @NonNull
+    public ValidationRules getValidationRules() {
+        return validationRules;
+    }
+
+    /**
+     * Replaces all the rules of this layout, e.g. when a recycled layout is bound to another field.
+     *
+     * @param rules rules to be applied
+     */
+    public void setValidationRules(@NonNull final ValidationRules rules) {
+        if (rules == validationRules)
+            return;
+
+        validationRules = rules;
+        ruleGeneration++;
+    }
+
+    /**
+     * Shows the error text of the validation error on the layout, or hides the error if null.
+     *
+     * @param validationError error to be displayed, null to clear the displayed error
+     * @see #showValidationErrors(int)
+     */
+    void showValidationError(@Nullable final TextInputLayoutValidator.ValidationError validationError) {
+        showValidationErrors(validationError == null ? 0 : ValidationEngine.getMask(validationError));
+    }
+
+    /**
+     * Shows the error texts of the failed rules on the layout, one per line, or hides the error if
+     * none failed. The layout is only touched if the shown errors or their text differ from what is
+     * displayed, as every setError/setErrorEnabled call may request a layout pass and run the error
+     * animation.
+     *
+     * @param errorMask bitmask of the failed rules as returned by
+     *                  {@link ValidationEngine#evaluateAll(ValidationRules, CharSequence)}
+     */
+    void showValidationErrors(final int errorMask) {
+        if (errorMask == 0) {
+            if (displayedErrorMask == 0 && !isErrorEnabled())
+                return;
+
+            setError(null);
+            setErrorEnabled(false);
+
+        } else {
+            String errorText = getErrorText(errorMask);
+            if (errorMask == displayedErrorMask && isErrorEnabled()
+                    && TextUtils.equals(getError(), errorText))
+                return;
+
+            setErrorEnabled(true);
+            setError(errorText);
+        }
+
+        displayedErrorMask = errorMask;
+        errorUpdateCount++;
+    }
+
+    /**
+     * @return number of times the validation changed the error UI of this layout
+     */
+    @VisibleForTesting
+    public int getErrorUpdateCount() {
+        return errorUpdateCount;
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        SavedState savedState = new SavedState(super.onSaveInstanceState());
+        savedState.displayedErrorMask = displayedErrorMask;
+        savedState.crossFieldErrorText = crossFieldErrorText;
+        if (validator != null)
+            validator.saveValidation(this, savedState);
+
+        return savedState;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        // the error itself is restored by TextInputLayout
+        displayedErrorMask = savedState.displayedErrorMask;
+        crossFieldErrorText = savedState.crossFieldErrorText;
+        restoredState = savedState;
+    }
+
+    /**
+     * Hands the restored validation result to the validator once the children are restored too,
+     * as it only holds for the text the EditText gets back.
+     */
+    @Override
+    protected void dispatchRestoreInstanceState(SparseArray<Parcelable> container) {
+        isRestoringState = true;
+        try {
+            super.dispatchRestoreInstanceState(container);
+        } finally {
+            isRestoringState = false;
+        }
+
+        if (validator != null && restoredState != null)
+            validator.restoreValidation(this, takeRestoredState());
+    }
+
+    /**
+     * @return true while the view state of the layout and its EditText is being restored
+     */
+    boolean isRestoringState() {
+        return isRestoringState;
+    }
+
+    /**
+     * @return the restored state no validator took yet, e.g. because the validator is created
+     * after the state was restored, null if none
+     */
+    @Nullable
+    SavedState takeRestoredState() {
+        SavedState savedState = restoredState;
+        restoredState = null;
+        return savedState;
+    }
+
+    private void reportRegexHazard() {
+        String hazard = validationRules.getValidationRegexHazard();
+        if (hazard == null)
+            return;
+
+        // a budget the pattern escapes gives a false sense of safety, hence the error level
+        if (validationRules.getValidationRegexStepBudget() > 0)
+            Log.e(TAG, "validationRegex " + validationRules.getValidationRegex() + " may freeze the UI despite "
+                    + "validationRegexStepBudget, " + hazard + ". Consider a pattern without backreferences or lookaround");
+        else
+            Log.w(TAG, "validationRegex " + validationRules.getValidationRegex() + " may freeze the UI, "
+                    + hazard + ". Consider setting validationRegexStepBudget");
+    }
+
+    @Nullable
+    TextInputLayoutValidator getValidator() {
+        return validator;
+    }
+
+    int getValidatorIndex() {
+        return validatorIndex;
+    }
+
+    void setValidator(@Nullable final TextInputLayoutValidator validator, final int validatorIndex) {
+        this.validator = validator;
+        this.validatorIndex = validatorIndex;
+    }
+
+    int getRuleGeneration() {
+        return ruleGeneration;
+    }
+
+    void setCrossFieldErrorText(@Nullable final String crossFieldErrorText) {
+        this.crossFieldErrorText = crossFieldErrorText;
+    }
+
+    String getErrorText(@NonNull final TextInputLayoutValidator.ValidationError validationError) {
+        if (validationError == TextInputLayoutValidator.ValidationError.CROSS_FIELD)
+            return crossFieldErrorText;
+
+        return validationRules.getErrorText(validationError);
+    }
+
+    private String getErrorText(final int errorMask) {
+        // a single error, which is the common case, needs no joining
+        if ((errorMask & (errorMask - 1)) == 0)
+            return getErrorText(ValidationEngine.getFirstError(errorMask));
+
+        StringBuilder errorText = new StringBuilder();
+        for (TextInputLayoutValidator.ValidationError validationError : ValidationEngine.toErrorSet(errorMask)) {
+            if (errorText.length() > 0)
+                errorText.append('\n');
+            errorText.append(getErrorText(validationError));
+        }
+        return errorText.toString();
+    }
+
     boolean isMinLengthSet() {
-        return minLength != -1;
+        return validationRules.isMinLengthSet();
     }
 
     boolean isMaxLengthSet() {
-        return maxLength != -1;
+        return validationRules.isMaxLengthSet();
     }
 
     boolean isValidationRegexSet() {
-        return validationRegex != null;
+        return validationRules.isValidationRegexSet();
     }
 
     boolean isValidationTypeSet() {
-        return validationType != ValidationType.NONE;
+        return validationRules.isValidationTypeSet();
     }
 
     String getValidationTypeRegex() {
-        String regex = "";
-
-        switch (validationType) {
-            case NONE:
-                break;
-            case ALPHA:
-                regex = REGEX_ALPHA;
-                break;
-            case ALPHA_WITH_SYMBOL:
-                regex = REGEX_ALPHA_WITH_SYMBOL;
-                break;
-            case NUMERIC:
-                regex = REGEX_NUMERIC;
-                break;
-            case NUMERIC_WITH_SYMBOL:
-                regex = REGEX_NUMERIC_WITH_SYMBOL;
-                break;
-            case ALPHA_NUMERIC:
-                regex = REGEX_ALPHA_NUMERIC;
-                break;
-            case ALPHA_NUMERIC_WITH_SYMBOL:
-                regex = REGEX_ALPHA_NUMERIC_WITH_SYMBOL;
-                break;
-            case EMAIL:
-                regex = REGEX_EMAIL;
-                break;
-            case IP:
-                regex = REGEX_IP;
-                break;
-        }
+        if (validationRules.getValidationType() == ValidationType.CUSTOM)
+            return validationRules.getValidationCharClass() + "+";
 
-        return regex;
+        return ValidationTypeMatchers.getRegex(validationRules.getValidationType());
     }
 
     boolean isContinuousValidationRequired() {
-        return validationCheck.equals(ValidationCheck.ALWAYS);
+        return validationCheck.equals(ValidationCheck.ALWAYS) || validationCheck.equals(ValidationCheck.DEBOUNCED);
+    }
+
+    boolean isDebouncedValidationRequired() {
+        return validationCheck.equals(ValidationCheck.DEBOUNCED);
     }
 
     boolean isAnyValidationSet() {
-        return (!isDefaultValidated()) || isRequired() || isMinLengthSet() || isMaxLengthSet() || isValidationRegexSet() | isValidationTypeSet();
+        return validationRules.isAnyValidationSet();
+    }
+
+    /**
+     * View state of the layout along with the last validation result of its field. The result is
+     * only taken back if the text and the rules of the field hash the same once restored.
+     */
+    static class SavedState extends AbsSavedState {
+        boolean isValidated;
+        int errorMask;
+        boolean isInError;
+        int textHash;
+        int rulesHash;
+        int displayedErrorMask;
+        String crossFieldErrorText;
+
+        SavedState(final Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(@NonNull final Parcel source, @Nullable final ClassLoader loader) {
+            super(source, loader);
+            isValidated = source.readInt() != 0;
+            errorMask = source.readInt();
+            isInError = source.readInt() != 0;
+            textHash = source.readInt();
+            rulesHash = source.readInt();
+            displayedErrorMask = source.readInt();
+            crossFieldErrorText = source.readString();
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeInt(isValidated ? 1 : 0);
+            dest.writeInt(errorMask);
+            dest.writeInt(isInError ? 1 : 0);
+            dest.writeInt(textHash);
+            dest.writeInt(rulesHash);
+            dest.writeInt(displayedErrorMask);
+            dest.writeString(crossFieldErrorText);
+        }
+
+        public static final Creator<SavedState> CREATOR = new ClassLoaderCreator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source, ClassLoader loader) {
+                return new SavedState(source, loader);
+            }
+
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source, null);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
     }
 }
@@ -1,76 +1,223 @@
 package com.mvivekanandji.validatingtextinputlayout;
 
+import android.os.Trace;
 import android.text.Editable;
-import android.text.TextUtils;
 import android.text.TextWatcher;
+import android.view.View;
+import android.widget.EditText;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-class ValidatingTextWatcher implements TextWatcher {
+class ValidatingTextWatcher implements TextWatcher, View.OnFocusChangeListener {
 
+    /**
+     * Receives the errors of the field's own rules, and is in charge of showing them, completed
+     * with whatever the field depends on.
+     */
     interface OnStateChangedListener {
-        void onError(ValidatingTextInputLayout textInputLayout, TextInputLayoutValidator.ValidationError validationError);
+        /**
+         * @param errorMask bitmask of the failed rules, never 0
+         */
+        void onError(ValidatingTextInputLayout textInputLayout, int errorMask);
 
         void onSuccess(ValidatingTextInputLayout textInputLayout);
+
+        @Nullable
+        ValidationMetricsListener getMetricsListener();
+
+        boolean isTraceEnabled();
     }
 
     private final ValidatingTextInputLayout textInputLayout;
     private final OnStateChangedListener onStateChangedListener;
+    private final Runnable pendingValidation;
+    private View.OnFocusChangeListener previousFocusChangeListener;
+    private boolean isValidationPending;
+    private boolean isAttached;
+    private int editGeneration;
+    // set when the text is restored along with the view state, whose result may be restored too
+    private boolean isValidationDeferred;
+
+    /*
+     * Number of characters of the text outside the class of a character class validation type,
+     * kept up to date from the edit deltas so that an edit costs O(edit size) instead of a rescan.
+     * Only valid for the rules of countedRuleGeneration.
+     */
+    private int disallowedCount;
+    private int countedRuleGeneration;
+    private ValidationTypeMatchers.CharClassMatcher countedCharClass;
 
     public ValidatingTextWatcher(@NonNull final ValidatingTextInputLayout textInputLayout,
                                  @NonNull final OnStateChangedListener onStateChangedListener) {
         this.textInputLayout = textInputLayout;
         this.onStateChangedListener = onStateChangedListener;
+        this.pendingValidation = () -> {
+            isValidationPending = false;
+            validate(textInputLayout.getEditText().getText());
+        };
+    }
+
+    /**
+     * Attaches this watcher to the {@link EditText} of the layout. The focus listener already set
+     * on the EditText, if any, keeps receiving its callbacks.
+     */
+    void attach() {
+        if (isAttached)
+            return;
+
+        EditText editText = textInputLayout.getEditText();
+        editText.addTextChangedListener(this);
+        previousFocusChangeListener = editText.getOnFocusChangeListener();
+        editText.setOnFocusChangeListener(this);
+        isAttached = true;
+        countedCharClass = null;
+    }
+
+    void detach() {
+        if (!isAttached)
+            return;
+
+        EditText editText = textInputLayout.getEditText();
+        cancelPendingValidation();
+        editText.removeTextChangedListener(this);
+        if (editText.getOnFocusChangeListener() == this)
+            editText.setOnFocusChangeListener(previousFocusChangeListener);
+        previousFocusChangeListener = null;
+        isAttached = false;
+    }
+
+    boolean isAttached() {
+        return isAttached;
+    }
+
+    /**
+     * @return number of edits seen since the watcher was created, used to tell whether a cached
+     * validation result still belongs to the current text
+     */
+    int getEditGeneration() {
+        return editGeneration;
+    }
+
+    /**
+     * Drops the validation scheduled by a {@link ValidatingTextInputLayout.ValidationCheck#DEBOUNCED}
+     * field, if any.
+     *
+     * @return true if a validation was pending
+     */
+    boolean cancelPendingValidation() {
+        if (!isValidationPending)
+            return false;
+
+        textInputLayout.removeCallbacks(pendingValidation);
+        isValidationPending = false;
+        return true;
     }
 
     @Override
-    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+    public void onFocusChange(View v, boolean hasFocus) {
+        if (previousFocusChangeListener != null)
+            previousFocusChangeListener.onFocusChange(v, hasFocus);
 
+        if (!hasFocus && cancelPendingValidation())
+            validate(textInputLayout.getEditText().getText());
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        if (count > 0 && isCountValid())
+            disallowedCount -= countedCharClass.countDisallowed(s, start, start + count);
     }
 
     @Override
     public void onTextChanged(CharSequence s, int start, int before, int count) {
+        if (count > 0 && isCountValid())
+            disallowedCount += countedCharClass.countDisallowed(s, start, start + count);
+    }
+
+    private boolean isCountValid() {
+        return countedCharClass != null && countedRuleGeneration == textInputLayout.getRuleGeneration();
+    }
 
+    /**
+     * @return number of disallowed characters of the text, rescanning it only if the rules changed
+     * since it was last counted, or {@link ValidationEngine#UNKNOWN_DISALLOWED_COUNT} if the
+     * validation type is not a character class
+     */
+    private int getDisallowedCount(Editable s) {
+        if (isCountValid())
+            return disallowedCount;
+
+        TextMatcher matcher = textInputLayout.getValidationRules().getValidationTypeMatcher();
+        if (!(matcher instanceof ValidationTypeMatchers.CharClassMatcher)) {
+            countedCharClass = null;
+            return ValidationEngine.UNKNOWN_DISALLOWED_COUNT;
+        }
+
+        countedCharClass = (ValidationTypeMatchers.CharClassMatcher) matcher;
+        countedRuleGeneration = textInputLayout.getRuleGeneration();
+        disallowedCount = countedCharClass.countDisallowed(s, 0, s.length());
+        return disallowedCount;
     }
 
     @Override
     public void afterTextChanged(Editable s) {
+        editGeneration++;
+
+        if (textInputLayout.isRestoringState()) {
+            cancelPendingValidation();
+            isValidationDeferred = true;
+            return;
+        }
 
-        if (textInputLayout.isRequired() && TextUtils.isEmpty(s)) {
-            if (onStateChangedListener != null)
-                onStateChangedListener.onError(textInputLayout, TextInputLayoutValidator.ValidationError.REQUIRED);
-            textInputLayout.setErrorEnabled(true);
-            textInputLayout.setError(textInputLayout.getRequiredErrorText());
-
-        } else if (textInputLayout.isMinLengthSet() && s.length() < textInputLayout.getMinLength()) {
-            if (onStateChangedListener != null)
-                onStateChangedListener.onError(textInputLayout, TextInputLayoutValidator.ValidationError.MIN_LENGTH);
-            textInputLayout.setErrorEnabled(true);
-            textInputLayout.setError(textInputLayout.getMinLengthErrorText());
-
-        } else if (textInputLayout.isMaxLengthSet() && s.length() > textInputLayout.getMaxLength()) {
-            if (onStateChangedListener != null)
-                onStateChangedListener.onError(textInputLayout, TextInputLayoutValidator.ValidationError.MAX_LENGTH);
-            textInputLayout.setErrorEnabled(true);
-            textInputLayout.setError(textInputLayout.getMaxLengthErrorText());
-
-        } else if (textInputLayout.isValidationRegexSet() && !s.toString().matches(textInputLayout.getValidationRegex())) {
-            if (onStateChangedListener != null)
-                onStateChangedListener.onError(textInputLayout, TextInputLayoutValidator.ValidationError.REGEX);
-            textInputLayout.setErrorEnabled(true);
-            textInputLayout.setError(textInputLayout.getValidationRegexErrorText());
-
-        } else if (textInputLayout.isValidationTypeSet() && !s.toString().matches(textInputLayout.getValidationTypeRegex())) {
-            if (onStateChangedListener != null)
-                onStateChangedListener.onError(textInputLayout, TextInputLayoutValidator.ValidationError.VALIDATION_TYPE);
-            textInputLayout.setErrorEnabled(true);
-            textInputLayout.setError(textInputLayout.getValidationTypeErrorText());
-
-        } else {
-            if (onStateChangedListener != null)
+        if (textInputLayout.isDebouncedValidationRequired()) {
+            cancelPendingValidation();
+            isValidationPending = true;
+            textInputLayout.postDelayed(pendingValidation, textInputLayout.getValidationDebounceDelay());
+            return;
+        }
+
+        validate(s);
+    }
+
+    /**
+     * Ends the restore of the view state of the layout, validating the text restored meanwhile
+     * unless its validation result was restored as well.
+     */
+    void onStateRestored(final boolean isResultRestored) {
+        if (!isValidationDeferred)
+            return;
+
+        isValidationDeferred = false;
+        if (!isResultRestored)
+            afterTextChanged(textInputLayout.getEditText().getText());
+    }
+
+    private void validate(Editable s) {
+        ValidationMetricsListener metricsListener = onStateChangedListener.getMetricsListener();
+        boolean isTraceEnabled = onStateChangedListener.isTraceEnabled();
+        if (isTraceEnabled)
+            Trace.beginSection(ValidationInstrumentation.SECTION_VALIDATE_FIELD);
+        try {
+            long start = metricsListener != null ? System.nanoTime() : 0;
+
+            int errorMask = metricsListener == null
+                    ? ValidationEngine.evaluate(textInputLayout.getValidationRules(), s, getDisallowedCount(s),
+                    textInputLayout.isShowAllErrors())
+                    : ValidationInstrumentation.evaluate(textInputLayout, s, getDisallowedCount(s),
+                    textInputLayout.isShowAllErrors(), metricsListener);
+
+            if (errorMask != 0)
+                onStateChangedListener.onError(textInputLayout, errorMask);
+            else
                 onStateChangedListener.onSuccess(textInputLayout);
-            textInputLayout.setError(null);
-            textInputLayout.setErrorEnabled(false);
+
+            if (metricsListener != null)
+                metricsListener.onFieldValidated(textInputLayout, ValidationEngine.getFirstError(errorMask), false,
+                        System.nanoTime() - start);
+        } finally {
+            if (isTraceEnabled)
+                Trace.endSection();
         }
     }
 
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <h1>Headless validation of text against {@link ValidationRules}, without any Android view</h1>
+ * <p>
+ * Holds the rule chain used by {@link ValidatingTextInputLayout}, {@link TextInputLayoutValidator}
+ * and {@link ValidationStateStore}, so that drafts, imports or sync payloads are validated exactly
+ * like the fields of a form. An engine validates records of several fields, one after the other
+ * or spread across cores with fork/join for large batches. Engines are immutable and thread-safe.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+public final class ValidationEngine {
+
+    /**
+     * Passed as disallowedCount when the number of disallowed characters of the text is not known.
+     */
+    static final int UNKNOWN_DISALLOWED_COUNT = -1;
+
+    // records validated by a single task before the batch is split further
+    private static final int BATCH_THRESHOLD = 256;
+
+    private static final ValidationError[] VALIDATION_ERRORS = ValidationError.values();
+
+    /**
+     * Rules of a single field, in the order they are checked.
+     */
+    static final ValidationError[] LOCAL_RULES = {ValidationError.REQUIRED, ValidationError.MIN_LENGTH,
+            ValidationError.MAX_LENGTH, ValidationError.REGEX, ValidationError.VALIDATION_TYPE};
+
+    private final String[] fieldIds;
+    private final ValidationRules[] fieldRules;
+
+    private ValidationEngine(@NonNull final Builder builder) {
+        this.fieldIds = builder.fieldIds.toArray(new String[0]);
+        this.fieldRules = builder.fieldRules.toArray(new ValidationRules[0]);
+    }
+
+    @NonNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Checks the text against the rules, in the order required, minLength, maxLength,
+     * validationRegex and validationType. Safe to call from any thread.
+     *
+     * @param rules rules to be checked
+     * @param text  text to be validated
+     * @return the first rule the text fails, or null if it passes all of them
+     */
+    @Nullable
+    public static ValidationError evaluate(@NonNull final ValidationRules rules, @NonNull final CharSequence text) {
+        return evaluate(rules, text, UNKNOWN_DISALLOWED_COUNT);
+    }
+
+    /**
+     * @param disallowedCount number of characters of the text outside the character class of a
+     *                        character class {@link ValidatingTextInputLayout.ValidationType}, kept
+     *                        up to date by the caller, or {@link #UNKNOWN_DISALLOWED_COUNT} to scan
+     *                        the text
+     * @see #evaluate(ValidationRules, CharSequence)
+     */
+    @Nullable
+    static ValidationError evaluate(@NonNull final ValidationRules rules, @NonNull final CharSequence text,
+                                    final int disallowedCount) {
+        return getFirstError(evaluate(rules, text, disallowedCount, false));
+    }
+
+    /**
+     * Checks the text against every rule, without stopping at the first failing one, e.g. to tell
+     * the user at once that the text is too short and must be numeric. The length rules cost
+     * nothing, and a character class validationType is checked in the same single scan whatever
+     * the other failures are. Safe to call from any thread.
+     *
+     * @param rules rules to be checked
+     * @param text  text to be validated
+     * @return bitmask of the failed rules, with bit {@link ValidationError#ordinal()} set for every
+     * failed rule, 0 if the text passes all of them
+     * @see #getFirstError(int)
+     * @see #toErrorSet(int)
+     */
+    public static int evaluateAll(@NonNull final ValidationRules rules, @NonNull final CharSequence text) {
+        return evaluate(rules, text, UNKNOWN_DISALLOWED_COUNT, true);
+    }
+
+    /**
+     * @param allErrors true to check every rule, false to stop at the first failing one
+     * @return bitmask of the failed rules
+     * @see #evaluate(ValidationRules, CharSequence, int)
+     */
+    static int evaluate(@NonNull final ValidationRules rules, @NonNull final CharSequence text,
+                        final int disallowedCount, final boolean allErrors) {
+        int errorMask = 0;
+        for (ValidationError rule : LOCAL_RULES) {
+            errorMask |= checkRule(rules, rule, text, disallowedCount);
+            if (errorMask != 0 && !allErrors)
+                break;
+        }
+        return errorMask;
+    }
+
+    /**
+     * @return true if the rules check the text against the rule
+     */
+    static boolean isRuleSet(@NonNull final ValidationRules rules, @NonNull final ValidationError rule) {
+        switch (rule) {
+            case REQUIRED:
+                return rules.isRequired();
+            case MIN_LENGTH:
+                return rules.isMinLengthSet();
+            case MAX_LENGTH:
+                return rules.isMaxLengthSet();
+            case REGEX:
+                return rules.isValidationRegexSet();
+            case VALIDATION_TYPE:
+                return rules.isValidationTypeSet();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return bit of the error the text fails the rule with, 0 if the rule is not set or passed.
+     * The regex rule fails with {@link ValidationError#REGEX_BUDGET_EXCEEDED} when its match runs
+     * out of step budget
+     * @see #evaluate(ValidationRules, CharSequence, int)
+     */
+    static int checkRule(@NonNull final ValidationRules rules, @NonNull final ValidationError rule,
+                         @NonNull final CharSequence text, final int disallowedCount) {
+        switch (rule) {
+            case REQUIRED:
+                return rules.isRequired() && text.length() == 0 ? getMask(rule) : 0;
+            case MIN_LENGTH:
+                return rules.isMinLengthSet() && text.length() < rules.getMinLength() ? getMask(rule) : 0;
+            case MAX_LENGTH:
+                return rules.isMaxLengthSet() && text.length() > rules.getMaxLength() ? getMask(rule) : 0;
+            case REGEX:
+                if (!rules.isValidationRegexSet())
+                    return 0;
+
+                int result = rules.getValidationRegexMatcher().match(text);
+                return result == RegexMatcher.MATCH ? 0
+                        : getMask(result == RegexMatcher.NO_MATCH ? ValidationError.REGEX : ValidationError.REGEX_BUDGET_EXCEEDED);
+            case VALIDATION_TYPE:
+                return rules.isValidationTypeSet() && (disallowedCount != UNKNOWN_DISALLOWED_COUNT
+                        ? text.length() == 0 || disallowedCount > 0
+                        : !rules.getValidationTypeMatcher().matches(text)) ? getMask(rule) : 0;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return bit of the error in the masks returned by {@link #evaluateAll(ValidationRules, CharSequence)}
+     */
+    public static int getMask(@NonNull final ValidationError validationError) {
+        return 1 << validationError.ordinal();
+    }
+
+    /**
+     * @param errorMask bitmask of failed rules
+     * @return the error {@link #evaluate(ValidationRules, CharSequence)} reports for the same text,
+     * i.e. the failed rule checked first, or null if the mask is 0
+     */
+    @Nullable
+    public static ValidationError getFirstError(final int errorMask) {
+        return errorMask == 0 ? null : VALIDATION_ERRORS[Integer.numberOfTrailingZeros(errorMask)];
+    }
+
+    @NonNull
+    public static EnumSet<ValidationError> toErrorSet(final int errorMask) {
+        EnumSet<ValidationError> validationErrors = EnumSet.noneOf(ValidationError.class);
+        for (int mask = errorMask; mask != 0; mask &= mask - 1)
+            validationErrors.add(VALIDATION_ERRORS[Integer.numberOfTrailingZeros(mask)]);
+
+        return validationErrors;
+    }
+
+    public int getFieldCount() {
+        return fieldIds.length;
+    }
+
+    @NonNull
+    public String getFieldId(final int index) {
+        return fieldIds[index];
+    }
+
+    /**
+     * @return index of the field in the records, -1 if the engine has no such field
+     */
+    public int indexOf(@NonNull final String fieldId) {
+        for (int i = 0; i < fieldIds.length; i++)
+            if (fieldIds[i].equals(fieldId))
+                return i;
+
+        return -1;
+    }
+
+    /**
+     * @param record values of the fields, in the order they were added to the builder. A null
+     *               value is validated as empty text
+     * @return error of every field, null for the fields which passed
+     */
+    @NonNull
+    public ValidationError[] validate(@NonNull final CharSequence[] record) {
+        ValidationError[] validationErrors = new ValidationError[fieldRules.length];
+        validate(record, validationErrors);
+        return validationErrors;
+    }
+
+    /**
+     * @return true if every field of the record passes its rules
+     */
+    public boolean isValid(@NonNull final CharSequence[] record) {
+        checkRecord(record);
+
+        for (int i = 0; i < fieldRules.length; i++)
+            if (evaluate(fieldRules[i], record[i] != null ? record[i] : "") != null)
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Validates the records on a shared {@link ForkJoinPool} sized to the available cores.
+     *
+     * @see #validateAll(List, ForkJoinPool)
+     */
+    @NonNull
+    public List<ValidationError[]> validateAll(@NonNull final List<? extends CharSequence[]> records) {
+        return validateAll(records, PoolHolder.POOL);
+    }
+
+    /**
+     * Validates a batch of records, splitting it across the threads of the pool. Must not be
+     * called from the main thread for large batches, as it blocks until all records are validated.
+     *
+     * @param records records to be validated
+     * @param pool    pool to run the validation on
+     * @return errors of every record, in the order of the records
+     */
+    @NonNull
+    public List<ValidationError[]> validateAll(@NonNull final List<? extends CharSequence[]> records,
+                                               @NonNull final ForkJoinPool pool) {
+        ValidationError[][] results = new ValidationError[records.size()][];
+        if (records.size() <= BATCH_THRESHOLD)
+            new BatchTask(records, results, 0, results.length).compute();
+        else
+            pool.invoke(new BatchTask(records, results, 0, results.length));
+
+        return Arrays.asList(results);
+    }
+
+    private void validate(@NonNull final CharSequence[] record, @NonNull final ValidationError[] validationErrors) {
+        checkRecord(record);
+
+        for (int i = 0; i < fieldRules.length; i++)
+            validationErrors[i] = evaluate(fieldRules[i], record[i] != null ? record[i] : "");
+    }
+
+    private void checkRecord(@NonNull final CharSequence[] record) {
+        if (record.length != fieldRules.length)
+            throw new IllegalArgumentException("Record has " + record.length + " values, expected " + fieldRules.length);
+    }
+
+    private final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends CharSequence[]> records;
+        private final ValidationError[][] results;
+        private final int start;
+        private final int end;
+
+        BatchTask(List<? extends CharSequence[]> records, ValidationError[][] results, int start, int end) {
+            this.records = records;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= BATCH_THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    results[i] = new ValidationError[fieldRules.length];
+                    validate(records.get(i), results[i]);
+                }
+                return;
+            }
+
+            int middle = (start + end) >>> 1;
+            invokeAll(new BatchTask(records, results, start, middle),
+                    new BatchTask(records, results, middle, end));
+        }
+    }
+
+    private static final class PoolHolder {
+        // ForkJoinPool.commonPool() needs API 24, so the engine keeps its own
+        static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public static final class Builder {
+        private final List<String> fieldIds = new ArrayList<>();
+        private final List<ValidationRules> fieldRules = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a field, which becomes the next value of every record.
+         *
+         * @param fieldId id of the field, e.g. the column name of an import
+         * @param rules   rules of the field, e.g. {@link ValidatingTextInputLayout#getValidationRules()}
+         *                of the layout the field is edited with
+         */
+        @NonNull
+        public Builder addField(@NonNull final String fieldId, @NonNull final ValidationRules rules) {
+            if (fieldIds.contains(fieldId))
+                throw new IllegalArgumentException("Duplicate field id: " + fieldId);
+
+            fieldIds.add(fieldId);
+            fieldRules.add(rules);
+            return this;
+        }
+
+        @NonNull
+        public ValidationEngine build() {
+            return new ValidationEngine(this);
+        }
+    }
+}
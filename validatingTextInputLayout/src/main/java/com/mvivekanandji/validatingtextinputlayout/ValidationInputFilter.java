@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import android.text.InputFilter;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+
+import androidx.annotation.NonNull;
+
+/**
+ * <h1>{@link InputFilter} keeping the text of a field within its rules as it is typed</h1>
+ * <p>
+ * Drops the characters outside the class of a character class
+ * {@link ValidatingTextInputLayout.ValidationType}, and cuts whatever would take the text past
+ * the maxLength, before the change reaches the Editable. The rules are read from the layout on
+ * every change, through the same matchers as the validation, so the filter follows rule changes
+ * and never disagrees with the validation. Rules about the whole text, e.g. EMAIL or the
+ * validationRegex, cannot be checked on a prefix and are left to the validation.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+class ValidationInputFilter implements InputFilter {
+
+    private final ValidatingTextInputLayout textInputLayout;
+
+    ValidationInputFilter(@NonNull final ValidatingTextInputLayout textInputLayout) {
+        this.textInputLayout = textInputLayout;
+    }
+
+    @Override
+    public CharSequence filter(CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
+        ValidationRules rules = textInputLayout.getValidationRules();
+        TextMatcher matcher = rules.getValidationTypeMatcher();
+        ValidationTypeMatchers.CharClassMatcher charClass = matcher instanceof ValidationTypeMatchers.CharClassMatcher
+                ? (ValidationTypeMatchers.CharClassMatcher) matcher : null;
+
+        int keep = end - start;
+        if (rules.isMaxLengthSet())
+            keep = Math.max(0, Math.min(keep, rules.getMaxLength() - (dest.length() - (dend - dstart))));
+
+        // most changes are accepted as they are, without copying the source
+        if (keep == end - start && (charClass == null || charClass.countDisallowed(source, start, end) == 0))
+            return null;
+
+        SpannableStringBuilder filtered = new SpannableStringBuilder(source, start, end);
+        if (charClass != null)
+            for (int i = filtered.length() - 1; i >= 0; i--)
+                if (!charClass.isAllowed(filtered.charAt(i)))
+                    filtered.delete(i, i + 1);
+
+        if (filtered.length() > keep) {
+            // never leave half of a surrogate pair behind
+            if (keep > 0 && Character.isHighSurrogate(filtered.charAt(keep - 1)))
+                keep--;
+            filtered.delete(keep, filtered.length());
+        }
+
+        return source instanceof Spanned ? filtered : filtered.toString();
+    }
+}
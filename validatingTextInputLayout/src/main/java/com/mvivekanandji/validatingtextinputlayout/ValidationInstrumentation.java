@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+
+/**
+ * <h1>Measured variant of the rule chain of {@link ValidationEngine}</h1>
+ * <p>
+ * Only used while a {@link ValidationMetricsListener} is set, so that the plain chain stays free
+ * of any clock read.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+final class ValidationInstrumentation {
+
+    static final String SECTION_VALIDATE_FORM = "TextInputLayoutValidator#validate";
+    static final String SECTION_VALIDATE_FIELD = "ValidatingTextWatcher#validate";
+
+    private ValidationInstrumentation() {
+    }
+
+    /**
+     * Same as {@link ValidationEngine#evaluate(ValidationRules, CharSequence, int, boolean)},
+     * reporting the time spent on every rule set on the field.
+     */
+    static int evaluate(@NonNull final ValidatingTextInputLayout inputLayout, @NonNull final CharSequence text,
+                        final int disallowedCount, final boolean allErrors,
+                        @NonNull final ValidationMetricsListener metricsListener) {
+        ValidationRules rules = inputLayout.getValidationRules();
+        int errorMask = 0;
+
+        for (ValidationError rule : ValidationEngine.LOCAL_RULES) {
+            if (!ValidationEngine.isRuleSet(rules, rule))
+                continue;
+
+            long start = System.nanoTime();
+            int ruleErrorMask = ValidationEngine.checkRule(rules, rule, text, disallowedCount);
+            metricsListener.onRuleEvaluated(inputLayout, rule, ruleErrorMask == 0, System.nanoTime() - start);
+
+            errorMask |= ruleErrorMask;
+            if (errorMask != 0 && !allErrors)
+                break;
+        }
+        return errorMask;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * <h1>Build time generator of the {@link TextMatcher}s of the validationRegex values found in
+ * the resources of an app</h1>
+ * <p>
+ * Scans the layouts for validationRegex attributes, and the styles for validationRegex items,
+ * then writes {@value #REGISTRY_SIMPLE_NAME}, holding a deterministic automaton unrolled into
+ * code for every pattern {@link LinearRegex} supports. {@link GeneratedMatchers} finds it at
+ * runtime, so that these patterns are neither compiled nor interpreted on the device. Run by the
+ * validation_matchers.gradle script of the module on the JVM:
+ * <pre>
+ * ValidationMatcherGenerator &lt;output source dir&gt; &lt;res dir&gt;...
+ * </pre>
+ * Patterns are registered by the text the layout reads at runtime. A pattern whose resource
+ * escapes are resolved differently, or which is set from code, is simply matched by
+ * {@link RegexMatcher}.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+final class ValidationMatcherGenerator {
+
+    static final String PACKAGE_NAME = "com.mvivekanandji.validatingtextinputlayout";
+    static final String REGISTRY_SIMPLE_NAME = "GeneratedValidationMatchers";
+
+    // larger automata are not worth the size of their code over the runtime matcher
+    static final int MAX_STATES = 256;
+
+    private static final String RES_AUTO_NAMESPACE = "http://schemas.android.com/apk/res-auto";
+    private static final String ATTRIBUTE_NAME = "validationRegex";
+    private static final String STRING_REFERENCE_PREFIX = "@string/";
+
+    private ValidationMatcherGenerator() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 0)
+            throw new IllegalArgumentException("Usage: ValidationMatcherGenerator <output source dir> <res dir>...");
+
+        File[] resDirs = new File[args.length - 1];
+        for (int i = 1; i < args.length; i++)
+            resDirs[i - 1] = new File(args[i]);
+
+        Set<String> regexes = collectRegexes(resDirs);
+        File packageDir = new File(args[0], PACKAGE_NAME.replace('.', File.separatorChar));
+        if (!packageDir.isDirectory() && !packageDir.mkdirs())
+            throw new IOException("Cannot create " + packageDir);
+
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(new File(packageDir, REGISTRY_SIMPLE_NAME + ".java")), Charset.forName("UTF-8"))) {
+            writer.write(generate(regexes));
+        }
+    }
+
+    /**
+     * @return every validationRegex of the layouts and styles, with string references resolved
+     */
+    @NonNull
+    static Set<String> collectRegexes(@NonNull final File... resDirs) throws IOException {
+        Map<String, String> strings = new HashMap<>();
+        for (File resDir : resDirs)
+            for (File file : listXmlFiles(resDir, "values"))
+                collectStrings(parse(file).getDocumentElement(), strings);
+
+        Set<String> regexes = new TreeSet<>();
+        for (File resDir : resDirs) {
+            for (File file : listXmlFiles(resDir, "values")) {
+                NodeList items = parse(file).getElementsByTagName("item");
+                for (int i = 0; i < items.getLength(); i++) {
+                    Element item = (Element) items.item(i);
+                    if (ATTRIBUTE_NAME.equals(item.getAttribute("name")))
+                        addRegex(item.getTextContent(), strings, regexes);
+                }
+            }
+
+            for (File file : listXmlFiles(resDir, "layout")) {
+                NodeList elements = parse(file).getElementsByTagName("*");
+                for (int i = 0; i < elements.getLength(); i++) {
+                    Element element = (Element) elements.item(i);
+                    if (element.hasAttributeNS(RES_AUTO_NAMESPACE, ATTRIBUTE_NAME))
+                        addRegex(element.getAttributeNS(RES_AUTO_NAMESPACE, ATTRIBUTE_NAME), strings, regexes);
+                }
+            }
+        }
+        return regexes;
+    }
+
+    /**
+     * @return source of the registry of the matchers of the patterns
+     */
+    @NonNull
+    static String generate(@NonNull final Set<String> regexes) {
+        StringBuilder matchers = new StringBuilder();
+        StringBuilder cases = new StringBuilder();
+        int count = 0;
+
+        for (String regex : regexes) {
+            String reason = null;
+            LinearRegex.Dfa dfa = null;
+            try {
+                Pattern.compile(regex);
+                LinearRegex linearRegex = LinearRegex.compile(regex);
+                if (linearRegex == null)
+                    reason = "not supported by the linear matcher";
+                else if ((dfa = linearRegex.toDfa(MAX_STATES)) == null)
+                    reason = "automaton too large or $ not at the end";
+            } catch (PatternSyntaxException e) {
+                reason = "invalid pattern";
+            }
+
+            if (reason != null) {
+                System.out.println("validationRegex " + regex + " left to java.util.regex: " + reason);
+                continue;
+            }
+
+            appendMatcher(matchers, "MATCHER_" + count, dfa);
+            cases.append("            case ").append(toJavaString(regex)).append(":\n")
+                    .append("                return MATCHER_").append(count).append(";\n");
+            count++;
+        }
+
+        return "// Generated by ValidationMatcherGenerator from the validationRegex values of the resources, do not edit.\n"
+                + "package " + PACKAGE_NAME + ";\n\n"
+                + "public final class " + REGISTRY_SIMPLE_NAME + " implements GeneratedMatchers.Registry {\n"
+                + matchers
+                + "\n    @Override\n"
+                + "    public TextMatcher getMatcher(String regex) {\n"
+                + "        switch (regex) {\n"
+                + cases
+                + "            default:\n"
+                + "                return null;\n"
+                + "        }\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    private static void appendMatcher(@NonNull final StringBuilder out, @NonNull final String name,
+                                      @NonNull final LinearRegex.Dfa dfa) {
+        out.append("\n    private static final TextMatcher ").append(name).append(" = new TextMatcher() {\n")
+                .append("        @Override\n")
+                .append("        public boolean matches(CharSequence text) {\n")
+                .append("            int state = 0;\n")
+                .append("            for (int i = 0, length = text.length(); i < length; ) {\n")
+                .append("                int c = Character.codePointAt(text, i);\n")
+                .append("                i += Character.charCount(c);\n")
+                .append("                switch (state) {\n");
+
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            int[] transitions = dfa.getTransitions(state);
+            if (transitions.length == 0)
+                continue;
+
+            out.append("                    case ").append(state).append(":\n");
+            for (int i = 0; i < transitions.length; i += 3) {
+                out.append(i == 0 ? "                        if (" : "                        else if (");
+                if (transitions[i] == transitions[i + 1])
+                    out.append("c == ").append(toJavaCodePoint(transitions[i]));
+                else
+                    out.append("c >= ").append(toJavaCodePoint(transitions[i]))
+                            .append(" && c <= ").append(toJavaCodePoint(transitions[i + 1]));
+                out.append(")\n                            state = ").append(transitions[i + 2]).append(";\n");
+            }
+            out.append("                        else\n")
+                    .append("                            return false;\n")
+                    .append("                        break;\n");
+        }
+
+        out.append("                    default:\n")
+                .append("                        return false;\n")
+                .append("                }\n")
+                .append("            }\n")
+                .append("            return ");
+
+        StringBuilder accepting = new StringBuilder();
+        for (int state = 0; state < dfa.getStateCount(); state++)
+            if (dfa.isAccepting(state))
+                accepting.append(accepting.length() == 0 ? "" : " || ").append("state == ").append(state);
+        out.append(accepting.length() == 0 ? "false" : accepting).append(";\n")
+                .append("        }\n")
+                .append("    };\n");
+    }
+
+    private static void addRegex(@NonNull final String value, @NonNull final Map<String, String> strings,
+                                 @NonNull final Set<String> regexes) {
+        String regex = value.trim();
+        if (regex.startsWith(STRING_REFERENCE_PREFIX))
+            regex = strings.get(regex.substring(STRING_REFERENCE_PREFIX.length()));
+        else if (regex.startsWith("@") || regex.startsWith("?"))
+            // other resources, theme attributes and data binding expressions are only known at runtime
+            regex = null;
+        else
+            regex = unescape(value);
+
+        if (regex != null && !regex.isEmpty())
+            regexes.add(regex);
+    }
+
+    private static void collectStrings(@NonNull final Element resources, @NonNull final Map<String, String> strings) {
+        NodeList elements = resources.getElementsByTagName("string");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) elements.item(i);
+            strings.put(element.getAttribute("name"), unescape(element.getTextContent()));
+        }
+    }
+
+    /**
+     * Resolves the escapes and quotes of a string resource as aapt does: backslash escapes,
+     * double quotes preserving whitespace, and other whitespace runs collapsed and trimmed.
+     */
+    @NonNull
+    static String unescape(@NonNull final String value) {
+        StringBuilder result = new StringBuilder();
+        boolean quoted = false;
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!quoted && Character.isWhitespace(c)) {
+                pendingSpace = result.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                result.append(' ');
+                pendingSpace = false;
+            }
+
+            if (c == '"')
+                quoted = !quoted;
+            else if (c == '\\' && i + 1 < value.length()) {
+                char escaped = value.charAt(++i);
+                if (escaped == 'n')
+                    result.append('\n');
+                else if (escaped == 't')
+                    result.append('\t');
+                else if (escaped == 'u' && i + 4 < value.length()) {
+                    result.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                    i += 4;
+                } else
+                    result.append(escaped);
+            } else
+                result.append(c);
+        }
+        return result.toString();
+    }
+
+    @NonNull
+    private static String toJavaString(@NonNull final String text) {
+        StringBuilder result = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\')
+                result.append('\\').append(c);
+            else if (c >= 0x20 && c < 0x7F)
+                result.append(c);
+            else
+                result.append(String.format("\\u%04x", (int) c));
+        }
+        return result.append('"').toString();
+    }
+
+    @NonNull
+    private static String toJavaCodePoint(final int codePoint) {
+        if (codePoint >= 0x20 && codePoint < 0x7F && codePoint != '\'' && codePoint != '\\')
+            return "'" + (char) codePoint + "'";
+        return String.format("0x%x", codePoint);
+    }
+
+    @NonNull
+    private static File[] listXmlFiles(@NonNull final File resDir, @NonNull final String type) {
+        Set<File> files = new TreeSet<>();
+        File[] dirs = resDir.listFiles();
+        if (dirs == null)
+            return new File[0];
+
+        for (File dir : dirs) {
+            // qualified variants, e.g. layout-land or values-v21
+            if (!dir.isDirectory() || !(dir.getName().equals(type) || dir.getName().startsWith(type + "-")))
+                continue;
+
+            File[] dirFiles = dir.listFiles();
+            if (dirFiles != null)
+                for (File file : dirFiles)
+                    if (file.getName().endsWith(".xml"))
+                        files.add(file);
+        }
+        return files.toArray(new File[0]);
+    }
+
+    @NonNull
+    private static Document parse(@NonNull final File file) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(file);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Cannot parse " + file, e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+
+/**
+ * <h1>Receives the timings of the validations run by a {@link TextInputLayoutValidator}</h1>
+ * <p>
+ * Set with {@link TextInputLayoutValidator#setMetricsListener(ValidationMetricsListener)}. The
+ * callbacks run on the main thread, inside the measured validation, so they should only record.
+ * While no listener is set nothing is measured. See {@link ValidationMetricsRecorder} for a
+ * listener aggregating the timings into histograms.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+public interface ValidationMetricsListener {
+
+    /**
+     * Called for every rule set on a field each time it is checked.
+     *
+     * @param inputLayout   field the rule belongs to
+     * @param rule          rule checked, e.g. {@link ValidationError#REGEX} for the validationRegex
+     *                      of the field
+     * @param passed        true if the text passed the rule
+     * @param durationNanos time spent checking the rule
+     */
+    default void onRuleEvaluated(@NonNull final ValidatingTextInputLayout inputLayout,
+                                 @NonNull final ValidationError rule,
+                                 final boolean passed,
+                                 final long durationNanos) {
+    }
+
+    /**
+     * Called for every field validated, while typing or during a validation of the form.
+     *
+     * @param inputLayout     field validated
+     * @param validationError first error of the field, null if it is valid
+     * @param isCached        true if the result of the previous validation was reused
+     * @param durationNanos   time spent validating the field and showing its errors
+     */
+    default void onFieldValidated(@NonNull final ValidatingTextInputLayout inputLayout,
+                                  @Nullable final ValidationError validationError,
+                                  final boolean isCached,
+                                  final long durationNanos) {
+    }
+
+    /**
+     * Called at the end of every validation of the form.
+     *
+     * @param validatedFieldCount number of fields validated, lower than the number of fields if
+     *                            the validation stopped early
+     * @param errorCount          number of fields found in error
+     * @param durationNanos       time spent validating the form
+     */
+    default void onFormValidated(final int validatedFieldCount, final int errorCount, final long durationNanos) {
+    }
+}
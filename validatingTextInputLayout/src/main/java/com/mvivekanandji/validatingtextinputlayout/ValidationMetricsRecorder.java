@@ -0,0 +1,225 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * <h1>{@link ValidationMetricsListener} aggregating the timings into histograms and counters</h1>
+ * <p>
+ * Keeps a {@link Histogram} per field, per rule of every field, per rule kind and for the whole
+ * form. The fields are keyed by the layout itself, weakly, so that layouts without id are kept
+ * apart and a recorder outliving its screen does not leak it. Snapshots may be taken from any
+ * thread, e.g. to be sent along with telemetry.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+public class ValidationMetricsRecorder implements ValidationMetricsListener {
+
+    private final Map<ValidatingTextInputLayout, FieldMetrics> fieldMetrics = new WeakHashMap<>();
+    private final Map<ValidationError, Histogram> ruleHistograms = new EnumMap<>(ValidationError.class);
+    private final Histogram formHistogram = new Histogram();
+
+    @Override
+    public synchronized void onRuleEvaluated(@NonNull final ValidatingTextInputLayout inputLayout,
+                                             @NonNull final ValidationError rule,
+                                             final boolean passed,
+                                             final long durationNanos) {
+        boolean failed = !passed;
+        getOrCreate(ruleHistograms, rule).record(durationNanos, failed);
+        getOrCreate(getFieldMetrics(inputLayout).ruleHistograms, rule).record(durationNanos, failed);
+    }
+
+    @Override
+    public synchronized void onFieldValidated(@NonNull final ValidatingTextInputLayout inputLayout,
+                                              @Nullable final ValidationError validationError,
+                                              final boolean isCached,
+                                              final long durationNanos) {
+        getFieldMetrics(inputLayout).fieldHistogram.record(durationNanos, validationError != null);
+    }
+
+    @Override
+    public synchronized void onFormValidated(final int validatedFieldCount, final int errorCount, final long durationNanos) {
+        formHistogram.record(durationNanos, errorCount > 0);
+    }
+
+    /**
+     * @return copy of the histogram of the field, null if it was never validated
+     */
+    @Nullable
+    public synchronized Histogram getFieldHistogram(@NonNull final ValidatingTextInputLayout inputLayout) {
+        FieldMetrics metrics = fieldMetrics.get(inputLayout);
+        return metrics != null && metrics.fieldHistogram.getCount() > 0 ? metrics.fieldHistogram.copy() : null;
+    }
+
+    /**
+     * @return copy of the histogram of the rule of the field, null if it was never checked
+     */
+    @Nullable
+    public synchronized Histogram getRuleHistogram(@NonNull final ValidatingTextInputLayout inputLayout,
+                                                   @NonNull final ValidationError rule) {
+        FieldMetrics metrics = fieldMetrics.get(inputLayout);
+        Histogram histogram = metrics != null ? metrics.ruleHistograms.get(rule) : null;
+        return histogram != null ? histogram.copy() : null;
+    }
+
+    /**
+     * @return copy of the histogram of the rule kind over all the fields, null if it was never checked
+     */
+    @Nullable
+    public synchronized Histogram getRuleHistogram(@NonNull final ValidationError rule) {
+        Histogram histogram = ruleHistograms.get(rule);
+        return histogram != null ? histogram.copy() : null;
+    }
+
+    /**
+     * @return copy of the histogram of the validations of the whole form
+     */
+    @NonNull
+    public synchronized Histogram getFormHistogram() {
+        return formHistogram.copy();
+    }
+
+    public synchronized void reset() {
+        fieldMetrics.clear();
+        ruleHistograms.clear();
+        formHistogram.clear();
+    }
+
+    @NonNull
+    private FieldMetrics getFieldMetrics(@NonNull final ValidatingTextInputLayout inputLayout) {
+        FieldMetrics metrics = fieldMetrics.get(inputLayout);
+        if (metrics == null) {
+            metrics = new FieldMetrics();
+            fieldMetrics.put(inputLayout, metrics);
+        }
+        return metrics;
+    }
+
+    @NonNull
+    private static Histogram getOrCreate(@NonNull final Map<ValidationError, Histogram> histograms,
+                                         @NonNull final ValidationError rule) {
+        Histogram histogram = histograms.get(rule);
+        if (histogram == null) {
+            histogram = new Histogram();
+            histograms.put(rule, histogram);
+        }
+        return histogram;
+    }
+
+    private static final class FieldMetrics {
+        final Histogram fieldHistogram = new Histogram();
+        final Map<ValidationError, Histogram> ruleHistograms = new EnumMap<>(ValidationError.class);
+    }
+
+    /**
+     * Durations counted in power of two buckets of nanoseconds, along with the number of
+     * invocations and failures.
+     */
+    public static final class Histogram {
+        private static final int BUCKET_COUNT = 64;
+
+        private final long[] buckets;
+        private long count;
+        private long failureCount;
+        private long totalNanos;
+        private long maxNanos;
+
+        Histogram() {
+            buckets = new long[BUCKET_COUNT];
+        }
+
+        private Histogram(@NonNull final Histogram histogram) {
+            buckets = histogram.buckets.clone();
+            count = histogram.count;
+            failureCount = histogram.failureCount;
+            totalNanos = histogram.totalNanos;
+            maxNanos = histogram.maxNanos;
+        }
+
+        void record(final long durationNanos, final boolean failed) {
+            long nanos = Math.max(durationNanos, 0);
+            buckets[nanos == 0 ? 0 : BUCKET_COUNT - 1 - Long.numberOfLeadingZeros(nanos)]++;
+            count++;
+            if (failed)
+                failureCount++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        void clear() {
+            Arrays.fill(buckets, 0);
+            count = 0;
+            failureCount = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+        }
+
+        @NonNull
+        Histogram copy() {
+            return new Histogram(this);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @param bucket index of the bucket, holding the durations from 2^bucket to 2^(bucket+1)
+         *               nanoseconds, bucket 0 also holding 0
+         * @return number of durations in the bucket
+         */
+        public long getBucketCount(final int bucket) {
+            return buckets[bucket];
+        }
+
+        /**
+         * @param percentile percentile between 0 and 100
+         * @return upper bound in nanoseconds of the bucket holding the percentile, 0 if empty
+         */
+        public long getPercentileNanos(final double percentile) {
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0)
+                    return i == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+import com.mvivekanandji.validatingtextinputlayout.ValidatingTextInputLayout.ValidationType;
+
+import java.lang.ref.WeakReference;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * <h1>Immutable set of the validation rules of a field, independent of any view</h1>
+ * <p>
+ * Holds the same rules as the attributes of {@link ValidatingTextInputLayout}, so that a field can
+ * be validated while no layout is bound to it. Instances are safe to share between threads.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+public final class ValidationRules {
+
+    private static final String DEFAULT_REQUIRED_ERROR_TEXT = "Required*";
+    private static final String DEFAULT_VALIDATION_REGEX_ERROR_TEXT = "Regex Validation Failed!";
+
+    // rules handed out by intern(), weakly held so that rules no layout uses anymore are collected
+    private static final Map<ValidationRules, WeakReference<ValidationRules>> INTERNED_RULES = new WeakHashMap<>();
+
+    /*
+     * The error texts are kept as set, null standing for the default text. The default texts
+     * depending on a rule are only built when first asked for, so that rules which never fail
+     * don't pay for the concatenation.
+     */
+    private final boolean required;
+    private final String requiredErrorText;
+    private final int minLength;
+    private final String minLengthErrorText;
+    private final int maxLength;
+    private final String maxLengthErrorText;
+    private final String validationRegex;
+    private final String validationRegexErrorText;
+    private final int validationRegexStepBudget;
+    private final ValidationType validationType;
+    private final String validationCharClass;
+    private final ValidationTypeMatchers.CharClassMatcher validationCharClassMatcher;
+    private final String validationTypeErrorText;
+    private final boolean defaultValidated;
+
+    // compiled on first use, shared by every copy of the rules keeping the same regex
+    private volatile RegexMatcher validationRegexMatcher;
+    private volatile String validationRegexHazard;
+    private String defaultMinLengthErrorText;
+    private String defaultMaxLengthErrorText;
+    private String defaultValidationTypeErrorText;
+
+    private ValidationRules(@NonNull final Builder builder) {
+        required = builder.required;
+        requiredErrorText = builder.requiredErrorText;
+        minLength = builder.minLength;
+        minLengthErrorText = builder.minLengthErrorText;
+        maxLength = builder.maxLength;
+        maxLengthErrorText = builder.maxLengthErrorText;
+        validationRegex = builder.validationRegex;
+        validationRegexMatcher = builder.validationRegexMatcher;
+        validationRegexErrorText = builder.validationRegexErrorText;
+        validationRegexStepBudget = builder.validationRegexStepBudget;
+        validationType = builder.validationType;
+        validationCharClass = builder.validationCharClass;
+        validationCharClassMatcher = builder.validationCharClassMatcher;
+        validationTypeErrorText = builder.validationTypeErrorText;
+        defaultValidated = builder.defaultValidated;
+    }
+
+    @NonNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @NonNull
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    public String getRequiredErrorText() {
+        return requiredErrorText != null ? requiredErrorText : DEFAULT_REQUIRED_ERROR_TEXT;
+    }
+
+    public int getMinLength() {
+        return minLength;
+    }
+
+    public String getMinLengthErrorText() {
+        if (minLengthErrorText != null)
+            return minLengthErrorText;
+
+        if (defaultMinLengthErrorText == null)
+            defaultMinLengthErrorText = "Minimum length should be greater than " + minLength;
+        return defaultMinLengthErrorText;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public String getMaxLengthErrorText() {
+        if (maxLengthErrorText != null)
+            return maxLengthErrorText;
+
+        if (defaultMaxLengthErrorText == null)
+            defaultMaxLengthErrorText = "Maximum length should be less than " + maxLength;
+        return defaultMaxLengthErrorText;
+    }
+
+    public String getValidationRegex() {
+        return validationRegex;
+    }
+
+    public String getValidationRegexErrorText() {
+        return validationRegexErrorText != null ? validationRegexErrorText : DEFAULT_VALIDATION_REGEX_ERROR_TEXT;
+    }
+
+    public int getValidationRegexStepBudget() {
+        return validationRegexStepBudget;
+    }
+
+    /**
+     * Checks the validationRegex for the constructs a backtracking regex engine may take
+     * exponential time on, e.g. nested quantifiers as in {@code (a+)+}, or which cannot be
+     * matched in linear time. The step budget only bounds the patterns matched in linear time:
+     * the others are matched by java.util.regex, which on Android copies the text before
+     * matching and so cannot be stopped, which the description then says.
+     *
+     * @return description of the hazard, null if none was found, no regex is set or the regex is
+     * matched by a matcher generated at build time
+     */
+    @Nullable
+    public String getValidationRegexHazard() {
+        if (validationRegex == null || GeneratedMatchers.get(validationRegex) != null)
+            return null;
+
+        // cached as an empty string once the pattern is found safe
+        String hazard = validationRegexHazard;
+        if (hazard == null) {
+            hazard = LinearRegex.findHazard(validationRegex);
+            if (validationRegexStepBudget > 0 && LinearRegex.compile(validationRegex) == null)
+                hazard = (hazard != null ? hazard : "too large to be matched in linear time")
+                        + "; the step budget does not bound it on Android";
+            validationRegexHazard = hazard = hazard != null ? hazard : "";
+        }
+        return hazard.isEmpty() ? null : hazard;
+    }
+
+    public ValidationType getValidationType() {
+        return validationType;
+    }
+
+    /**
+     * @return characters allowed by the {@link ValidationType#CUSTOM} validation type, as a
+     * character class in the regex syntax
+     */
+    @Nullable
+    public String getValidationCharClass() {
+        return validationCharClass;
+    }
+
+    public String getValidationTypeErrorText() {
+        if (validationTypeErrorText != null)
+            return validationTypeErrorText;
+
+        if (defaultValidationTypeErrorText == null)
+            defaultValidationTypeErrorText = validationType.toString() + " Validation Failed!";
+        return defaultValidationTypeErrorText;
+    }
+
+    public boolean isDefaultValidated() {
+        return defaultValidated;
+    }
+
+    /**
+     * Returns an equal instance shared by every caller asking with equal rules, e.g. by all the
+     * layouts inflated from the same style, so that they share one compiled regex and one set of
+     * error texts.
+     *
+     * @return the shared instance equal to these rules
+     */
+    @NonNull
+    public ValidationRules intern() {
+        synchronized (INTERNED_RULES) {
+            WeakReference<ValidationRules> reference = INTERNED_RULES.get(this);
+            ValidationRules rules = reference != null ? reference.get() : null;
+            if (rules != null)
+                return rules;
+
+            INTERNED_RULES.put(this, new WeakReference<>(this));
+            return this;
+        }
+    }
+
+    @Nullable
+    RegexMatcher getValidationRegexMatcher() {
+        RegexMatcher matcher = validationRegexMatcher;
+        if (matcher == null && validationRegex != null) {
+            TextMatcher generatedMatcher = GeneratedMatchers.get(validationRegex);
+            matcher = generatedMatcher != null ? new RegexMatcher(generatedMatcher)
+                    : new RegexMatcher(Pattern.compile(validationRegex), validationRegexStepBudget);
+            validationRegexMatcher = matcher;
+        }
+
+        return matcher;
+    }
+
+    /**
+     * @return matcher of the validation type, null if none is set
+     */
+    @Nullable
+    TextMatcher getValidationTypeMatcher() {
+        return validationType == ValidationType.CUSTOM ? validationCharClassMatcher
+                : ValidationTypeMatchers.forType(validationType);
+    }
+
+    boolean isMinLengthSet() {
+        return minLength != -1;
+    }
+
+    boolean isMaxLengthSet() {
+        return maxLength != -1;
+    }
+
+    boolean isValidationRegexSet() {
+        return validationRegex != null;
+    }
+
+    boolean isValidationTypeSet() {
+        return validationType != ValidationType.NONE;
+    }
+
+    /**
+     * @see ValidatingTextInputLayout#isAnyValidationSet()
+     */
+    boolean isAnyValidationSet() {
+        return !defaultValidated || required || isMinLengthSet() || isMaxLengthSet() || isValidationRegexSet() || isValidationTypeSet();
+    }
+
+    @Nullable
+    public String getErrorText(@NonNull final ValidationError validationError) {
+        switch (validationError) {
+            case REQUIRED:
+                return getRequiredErrorText();
+            case MIN_LENGTH:
+                return getMinLengthErrorText();
+            case MAX_LENGTH:
+                return getMaxLengthErrorText();
+            case REGEX:
+            case REGEX_BUDGET_EXCEEDED:
+                return getValidationRegexErrorText();
+            case VALIDATION_TYPE:
+                return getValidationTypeErrorText();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Checks the text against the rules. Safe to call from any thread.
+     *
+     * @see ValidationEngine#evaluate(ValidationRules, CharSequence)
+     *
+     * @param text text to be validated
+     * @return the first rule the text fails, or null if it passes all of them
+     */
+    @Nullable
+    public ValidationError evaluate(@NonNull final CharSequence text) {
+        return ValidationEngine.evaluate(this, text);
+    }
+
+    /**
+     * @param text text to be validated
+     * @return every rule the text fails, empty if it passes all of them
+     * @see ValidationEngine#evaluateAll(ValidationRules, CharSequence)
+     */
+    @NonNull
+    public EnumSet<ValidationError> evaluateAll(@NonNull final CharSequence text) {
+        return ValidationEngine.toErrorSet(ValidationEngine.evaluateAll(this, text));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof ValidationRules))
+            return false;
+
+        ValidationRules rules = (ValidationRules) o;
+        return required == rules.required
+                && minLength == rules.minLength
+                && maxLength == rules.maxLength
+                && defaultValidated == rules.defaultValidated
+                && validationType == rules.validationType
+                && Objects.equals(validationCharClass, rules.validationCharClass)
+                && Objects.equals(validationRegex, rules.validationRegex)
+                && Objects.equals(requiredErrorText, rules.requiredErrorText)
+                && Objects.equals(minLengthErrorText, rules.minLengthErrorText)
+                && Objects.equals(maxLengthErrorText, rules.maxLengthErrorText)
+                && Objects.equals(validationRegexErrorText, rules.validationRegexErrorText)
+                && validationRegexStepBudget == rules.validationRegexStepBudget
+                && Objects.equals(validationTypeErrorText, rules.validationTypeErrorText);
+    }
+
+    /**
+     * Stays the same across processes, as it is saved with the view state to tell whether a saved
+     * validation result was computed for the same rules. The validation type is hashed through
+     * its name, since the hash code of an enum is an identity hash.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(required, requiredErrorText, minLength, minLengthErrorText, maxLength, maxLengthErrorText,
+                validationRegex, validationRegexErrorText, validationRegexStepBudget, validationType.name(), validationCharClass,
+                validationTypeErrorText, defaultValidated);
+    }
+
+    public static final class Builder {
+        private boolean required;
+        private String requiredErrorText;
+        private int minLength = -1;
+        private String minLengthErrorText;
+        private int maxLength = -1;
+        private String maxLengthErrorText;
+        private String validationRegex;
+        private RegexMatcher validationRegexMatcher;
+        private String validationRegexErrorText;
+        private int validationRegexStepBudget = -1;
+        private ValidationType validationType = ValidationType.NONE;
+        private String validationCharClass;
+        private ValidationTypeMatchers.CharClassMatcher validationCharClassMatcher;
+        private String validationTypeErrorText;
+        private boolean defaultValidated;
+
+        private Builder() {
+        }
+
+        private Builder(@NonNull final ValidationRules rules) {
+            required = rules.required;
+            requiredErrorText = rules.requiredErrorText;
+            minLength = rules.minLength;
+            minLengthErrorText = rules.minLengthErrorText;
+            maxLength = rules.maxLength;
+            maxLengthErrorText = rules.maxLengthErrorText;
+            validationRegex = rules.validationRegex;
+            validationRegexMatcher = rules.validationRegexMatcher;
+            validationRegexErrorText = rules.validationRegexErrorText;
+            validationRegexStepBudget = rules.validationRegexStepBudget;
+            validationType = rules.validationType;
+            validationCharClass = rules.validationCharClass;
+            validationCharClassMatcher = rules.validationCharClassMatcher;
+            validationTypeErrorText = rules.validationTypeErrorText;
+            defaultValidated = rules.defaultValidated;
+        }
+
+        @NonNull
+        public Builder setRequired(final boolean required) {
+            this.required = required;
+            return this;
+        }
+
+        @NonNull
+        public Builder setRequiredErrorText(@Nullable final String requiredErrorText) {
+            this.requiredErrorText = requiredErrorText;
+            return this;
+        }
+
+        @NonNull
+        public Builder setMinLength(final int minLength) {
+            this.minLength = minLength;
+            return this;
+        }
+
+        @NonNull
+        public Builder setMinLengthErrorText(@Nullable final String minLengthErrorText) {
+            this.minLengthErrorText = minLengthErrorText;
+            return this;
+        }
+
+        @NonNull
+        public Builder setMaxLength(final int maxLength) {
+            this.maxLength = maxLength;
+            return this;
+        }
+
+        @NonNull
+        public Builder setMaxLengthErrorText(@Nullable final String maxLengthErrorText) {
+            this.maxLengthErrorText = maxLengthErrorText;
+            return this;
+        }
+
+        @NonNull
+        public Builder setValidationRegex(@Nullable final String validationRegex) {
+            if (validationRegex == null || !validationRegex.equals(this.validationRegex))
+                this.validationRegexMatcher = null;
+
+            this.validationRegex = validationRegex;
+            return this;
+        }
+
+        /**
+         * Caps the work of matching the validationRegex against a text, for the patterns of the
+         * subset matched in linear time. A text whose match runs out of budget fails with
+         * {@link ValidationError#REGEX_BUDGET_EXCEEDED}. A budget of a few thousand steps per
+         * character of the longest expected text leaves ordinary patterns unaffected.
+         * <p>
+         * Patterns outside the subset, e.g. with backreferences or lookaround, are matched by
+         * java.util.regex, which cannot be stopped on Android: they are not protected by the
+         * budget, as reported by {@link ValidationRules#getValidationRegexHazard()}.
+         *
+         * @param validationRegexStepBudget maximum number of matching steps, -1 for no limit
+         */
+        @NonNull
+        public Builder setValidationRegexStepBudget(final int validationRegexStepBudget) {
+            if (validationRegexStepBudget != this.validationRegexStepBudget)
+                this.validationRegexMatcher = null;
+
+            this.validationRegexStepBudget = validationRegexStepBudget;
+            return this;
+        }
+
+        @NonNull
+        public Builder setValidationRegexErrorText(@Nullable final String validationRegexErrorText) {
+            this.validationRegexErrorText = validationRegexErrorText;
+            return this;
+        }
+
+        @NonNull
+        public Builder setValidationType(@NonNull final ValidationType validationType) {
+            this.validationType = validationType;
+            return this;
+        }
+
+        /**
+         * Declares the characters of the {@link ValidationType#CUSTOM} validation type, e.g.
+         * {@code [0-9a-fA-F]} for hex digits or {@code [\\u0900-\\u097F]} for Devanagari. The class
+         * is turned into a lookup table once, so that checking a character costs a single lookup.
+         *
+         * @param validationCharClass a single character class in the regex syntax, without
+         *                            intersections or nested classes, null for none
+         * @throws IllegalArgumentException if the class is not supported
+         */
+        @NonNull
+        public Builder setValidationCharClass(@Nullable final String validationCharClass) {
+            if (validationCharClass == null)
+                validationCharClassMatcher = null;
+            else if (!validationCharClass.equals(this.validationCharClass)) {
+                validationCharClassMatcher = ValidationTypeMatchers.CharClassMatcher.compile(validationCharClass);
+                if (validationCharClassMatcher == null)
+                    throw new IllegalArgumentException("Unsupported validationCharClass: " + validationCharClass);
+            }
+
+            this.validationCharClass = validationCharClass;
+            return this;
+        }
+
+        @NonNull
+        public Builder setValidationTypeErrorText(@Nullable final String validationTypeErrorText) {
+            this.validationTypeErrorText = validationTypeErrorText;
+            return this;
+        }
+
+        @NonNull
+        public Builder setDefaultValidated(final boolean defaultValidated) {
+            this.defaultValidated = defaultValidated;
+            return this;
+        }
+
+        /**
+         * @throws IllegalStateException if the validation type is {@link ValidationType#CUSTOM}
+         *                               and no validationCharClass is set
+         */
+        @NonNull
+        public ValidationRules build() {
+            if (validationType == ValidationType.CUSTOM && validationCharClass == null)
+                throw new IllegalStateException("CUSTOM validationType requires a validationCharClass");
+
+            return new ValidationRules(this);
+        }
+    }
+}
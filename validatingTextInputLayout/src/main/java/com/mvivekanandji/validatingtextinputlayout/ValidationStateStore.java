@@ -0,0 +1,362 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.widget.EditText;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>Validation state of a form kept apart from its views, for forms whose fields are rows of a
+ * RecyclerView or are otherwise not all inflated at once</h1>
+ * <p>
+ * Every field is keyed by a stable id and holds its {@link ValidationRules}, its last value and
+ * its error state. A {@link ValidatingTextInputLayout} is bound to a field while it shows it (e.g.
+ * in onBindViewHolder) and unbound when it is recycled, so {@link #validate()} covers every field
+ * whether or not a view exists for it, and the store does not grow with view churn.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+public class ValidationStateStore {
+
+    public interface StoreListener {
+        default void onError(@NonNull final String fieldId, @NonNull final ValidationError validationError) {
+        }
+
+        default void onErrorResolved(@NonNull final String fieldId) {
+        }
+
+        default void onSuccess() {
+        }
+    }
+
+    public static final class FieldState {
+        private final String fieldId;
+        private ValidationRules rules;
+        private String value;
+        private ValidationError validationError;
+        private boolean isErrorFree;
+        private boolean isValidated;
+        private boolean isDirty;
+
+        private FieldState(@NonNull final String fieldId, @NonNull final ValidationRules rules, @NonNull final String value) {
+            this.fieldId = fieldId;
+            this.rules = rules;
+            this.value = value;
+            this.isErrorFree = !rules.isAnyValidationSet();
+            this.isDirty = true;
+        }
+
+        @NonNull
+        public String getFieldId() {
+            return fieldId;
+        }
+
+        @NonNull
+        public ValidationRules getRules() {
+            return rules;
+        }
+
+        @NonNull
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return error found by the last validation, null if the field passed or was never validated
+         */
+        @Nullable
+        public ValidationError getValidationError() {
+            return validationError;
+        }
+
+        public boolean isErrorFree() {
+            return isErrorFree;
+        }
+
+        public boolean isValidated() {
+            return isValidated;
+        }
+    }
+
+    private final Map<String, FieldState> fieldStateMap;
+    private final Map<ValidatingTextInputLayout, Binding> bindingMap;
+    private final StoreListener storeListener;
+    private int invalidFieldCount;
+
+    public ValidationStateStore(@Nullable final StoreListener storeListener) {
+        this.fieldStateMap = new LinkedHashMap<>();
+        this.bindingMap = new HashMap<>();
+        this.storeListener = storeListener;
+    }
+
+    /**
+     * Adds a field, or replaces the rules and value of the field if the id is already known.
+     *
+     * @param fieldId stable id of the field, e.g. the id of the model row
+     * @param rules   rules of the field
+     * @param value   current value of the field, null for empty
+     */
+    public void putField(@NonNull final String fieldId, @NonNull final ValidationRules rules,
+                         @Nullable final CharSequence value) {
+        String text = value != null ? value.toString() : "";
+        FieldState fieldState = fieldStateMap.get(fieldId);
+
+        if (fieldState == null) {
+            fieldState = new FieldState(fieldId, rules, text);
+            fieldStateMap.put(fieldId, fieldState);
+            if (!fieldState.isErrorFree)
+                invalidFieldCount++;
+            return;
+        }
+
+        fieldState.rules = rules;
+        fieldState.value = text;
+        fieldState.isDirty = true;
+
+        Binding binding = findBinding(fieldState);
+        if (binding != null)
+            binding.bind();
+    }
+
+    public void removeField(@NonNull final String fieldId) {
+        FieldState fieldState = fieldStateMap.remove(fieldId);
+        if (fieldState == null)
+            return;
+
+        Binding binding = findBinding(fieldState);
+        if (binding != null)
+            unbind(binding.inputLayout);
+
+        if (!fieldState.isErrorFree && --invalidFieldCount == 0 && storeListener != null)
+            storeListener.onSuccess();
+    }
+
+    /**
+     * Updates the value of a field which is not bound to a view, e.g. after the model changed.
+     */
+    public void setValue(@NonNull final String fieldId, @Nullable final CharSequence value) {
+        FieldState fieldState = requireFieldState(fieldId);
+        String text = value != null ? value.toString() : "";
+        if (text.equals(fieldState.value))
+            return;
+
+        fieldState.value = text;
+        fieldState.isDirty = true;
+
+        Binding binding = findBinding(fieldState);
+        if (binding != null)
+            binding.bind();
+        else if (fieldState.isValidated)
+            reevaluate(fieldState, null);
+    }
+
+    @Nullable
+    public FieldState getFieldState(@NonNull final String fieldId) {
+        return fieldStateMap.get(fieldId);
+    }
+
+    public int getFieldCount() {
+        return fieldStateMap.size();
+    }
+
+    public boolean isValid() {
+        return invalidFieldCount == 0;
+    }
+
+    /**
+     * @return ids of the fields in error, in the order they were added
+     */
+    @NonNull
+    public List<String> getInvalidFieldIds() {
+        List<String> invalidFieldIds = new ArrayList<>(invalidFieldCount);
+        for (FieldState fieldState : fieldStateMap.values())
+            if (!fieldState.isErrorFree)
+                invalidFieldIds.add(fieldState.fieldId);
+
+        return invalidFieldIds;
+    }
+
+    /**
+     * Shows the field on the layout and keeps the stored value in step with the edits made on it.
+     * A layout bound to another field is unbound from it first.
+     *
+     * @param fieldId     id of the field
+     * @param inputLayout layout the field is shown on
+     */
+    public void bind(@NonNull final String fieldId, @NonNull final ValidatingTextInputLayout inputLayout) {
+        FieldState fieldState = requireFieldState(fieldId);
+        Binding binding = bindingMap.get(inputLayout);
+
+        if (binding != null && binding.fieldState == fieldState)
+            return;
+
+        if (binding != null)
+            binding.detach();
+
+        binding = new Binding(inputLayout, fieldState);
+        bindingMap.put(inputLayout, binding);
+        binding.bind();
+    }
+
+    /**
+     * Releases the layout, e.g. when its row is recycled. The state of the field is kept.
+     */
+    public void unbind(@NonNull final ValidatingTextInputLayout inputLayout) {
+        Binding binding = bindingMap.remove(inputLayout);
+        if (binding != null)
+            binding.detach();
+    }
+
+    /**
+     * Validates every field, bound or not. Fields whose value and rules are unchanged since their
+     * last validation are not evaluated again.
+     *
+     * @return true if all the fields are valid
+     */
+    public boolean validate() {
+        for (FieldState fieldState : fieldStateMap.values()) {
+            fieldState.isValidated = true;
+            if (fieldState.isDirty)
+                evaluate(fieldState, findBinding(fieldState));
+        }
+
+        if (invalidFieldCount == 0 && storeListener != null)
+            storeListener.onSuccess();
+
+        return invalidFieldCount == 0;
+    }
+
+    /**
+     * Evaluates a field after it changed outside of {@link #validate()}, reporting the success if
+     * it was the last invalid field.
+     */
+    private void reevaluate(@NonNull final FieldState fieldState, @Nullable final Binding binding) {
+        boolean wasValid = invalidFieldCount == 0;
+        evaluate(fieldState, binding);
+
+        if (!wasValid && invalidFieldCount == 0 && storeListener != null)
+            storeListener.onSuccess();
+    }
+
+    private void evaluate(@NonNull final FieldState fieldState, @Nullable final Binding binding) {
+        ValidationError validationError = fieldState.rules.evaluate(fieldState.value);
+        boolean wasErrorFree = fieldState.isErrorFree;
+
+        fieldState.validationError = validationError;
+        fieldState.isErrorFree = validationError == null;
+        fieldState.isDirty = false;
+
+        if (binding != null)
+            binding.inputLayout.showValidationError(validationError);
+
+        if (validationError != null) {
+            if (storeListener != null)
+                storeListener.onError(fieldState.fieldId, validationError);
+            if (wasErrorFree)
+                invalidFieldCount++;
+
+        } else if (!wasErrorFree) {
+            if (storeListener != null)
+                storeListener.onErrorResolved(fieldState.fieldId);
+            invalidFieldCount--;
+        }
+    }
+
+    @NonNull
+    private FieldState requireFieldState(@NonNull final String fieldId) {
+        FieldState fieldState = fieldStateMap.get(fieldId);
+        if (fieldState == null)
+            throw new IllegalArgumentException("Unknown field id: " + fieldId);
+
+        return fieldState;
+    }
+
+    @Nullable
+    private Binding findBinding(@NonNull final FieldState fieldState) {
+        // only the visible rows are bound, so this stays small
+        for (Binding binding : bindingMap.values())
+            if (binding.fieldState == fieldState)
+                return binding;
+
+        return null;
+    }
+
+    private class Binding implements TextWatcher {
+        private final ValidatingTextInputLayout inputLayout;
+        private final FieldState fieldState;
+
+        Binding(@NonNull final ValidatingTextInputLayout inputLayout, @NonNull final FieldState fieldState) {
+            this.inputLayout = inputLayout;
+            this.fieldState = fieldState;
+        }
+
+        /**
+         * Pushes the stored rules, value and error onto the layout.
+         */
+        void bind() {
+            EditText editText = inputLayout.getEditText();
+            editText.removeTextChangedListener(this);
+
+            inputLayout.setValidationRules(fieldState.rules);
+            if (!TextUtils.equals(editText.getText(), fieldState.value))
+                editText.setText(fieldState.value);
+
+            if (fieldState.isValidated && fieldState.isDirty)
+                reevaluate(fieldState, this);
+            else
+                inputLayout.showValidationError(fieldState.isValidated ? fieldState.validationError : null);
+
+            editText.addTextChangedListener(this);
+        }
+
+        void detach() {
+            inputLayout.getEditText().removeTextChangedListener(this);
+        }
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            fieldState.value = s.toString();
+            fieldState.isDirty = true;
+
+            if (fieldState.isValidated)
+                reevaluate(fieldState, this);
+        }
+    }
+}
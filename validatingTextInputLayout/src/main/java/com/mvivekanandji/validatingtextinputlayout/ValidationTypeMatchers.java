@@ -0,0 +1,297 @@
+/*
+ * Copyright 2021 Vivekanand Mishra.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mvivekanandji.validatingtextinputlayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mvivekanandji.validatingtextinputlayout.ValidatingTextInputLayout.ValidationType;
+
+/**
+ * <h1>Allocation free, single pass {@link TextMatcher}s for the built-in {@link ValidationType}s</h1>
+ * <p>
+ * Each matcher accepts exactly what the corresponding REGEX_* expression accepts; the expressions
+ * are kept as the reference definition of every type.
+ *
+ * @author vivekanand
+ * @version 0.2.0
+ */
+final class ValidationTypeMatchers {
+
+    /* the character classes of the types, matched by tables built from their regex definitions */
+    static final String CLASS_ALPHA = "\\p{Alpha}";
+    static final String CLASS_ALPHA_WITH_SYMBOL = "[\\p{Alpha}\\p{Punct}]";
+    static final String CLASS_NUMERIC = "\\p{Digit}";
+    static final String CLASS_NUMERIC_WITH_SYMBOL = "[\\p{Digit}\\p{Punct}]";
+    static final String CLASS_ALPHA_NUMERIC = "\\p{Alnum}";
+    static final String CLASS_ALPHA_NUMERIC_WITH_SYMBOL = "\\p{Graph}";
+
+    static final String REGEX_ALPHA = CLASS_ALPHA + "+";
+    static final String REGEX_ALPHA_WITH_SYMBOL = CLASS_ALPHA_WITH_SYMBOL + "+";
+    static final String REGEX_NUMERIC = CLASS_NUMERIC + "+";
+    static final String REGEX_NUMERIC_WITH_SYMBOL = CLASS_NUMERIC_WITH_SYMBOL + "+";
+    static final String REGEX_ALPHA_NUMERIC = CLASS_ALPHA_NUMERIC + "+";
+    static final String REGEX_ALPHA_NUMERIC_WITH_SYMBOL = CLASS_ALPHA_NUMERIC_WITH_SYMBOL + "+";
+    static final String REGEX_EMAIL = "^[_A-Za-z0-9-]+(\\.[_A-Za-z0-9-]+)*@[A-Za-z0-9]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$";
+    static final String REGEX_IP = "^([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])$";
+
+    static final TextMatcher ALPHA = CharClassMatcher.compile(CLASS_ALPHA);
+
+    static final TextMatcher ALPHA_WITH_SYMBOL = CharClassMatcher.compile(CLASS_ALPHA_WITH_SYMBOL);
+
+    static final TextMatcher NUMERIC = CharClassMatcher.compile(CLASS_NUMERIC);
+
+    static final TextMatcher NUMERIC_WITH_SYMBOL = CharClassMatcher.compile(CLASS_NUMERIC_WITH_SYMBOL);
+
+    static final TextMatcher ALPHA_NUMERIC = CharClassMatcher.compile(CLASS_ALPHA_NUMERIC);
+
+    static final TextMatcher ALPHA_NUMERIC_WITH_SYMBOL = CharClassMatcher.compile(CLASS_ALPHA_NUMERIC_WITH_SYMBOL);
+
+    static final TextMatcher EMAIL = ValidationTypeMatchers::matchesEmail;
+
+    static final TextMatcher IP = ValidationTypeMatchers::matchesIp;
+
+    private ValidationTypeMatchers() {
+    }
+
+    @Nullable
+    static TextMatcher forType(@NonNull final ValidationType validationType) {
+        switch (validationType) {
+            case ALPHA:
+                return ALPHA;
+            case ALPHA_WITH_SYMBOL:
+                return ALPHA_WITH_SYMBOL;
+            case NUMERIC:
+                return NUMERIC;
+            case NUMERIC_WITH_SYMBOL:
+                return NUMERIC_WITH_SYMBOL;
+            case ALPHA_NUMERIC:
+                return ALPHA_NUMERIC;
+            case ALPHA_NUMERIC_WITH_SYMBOL:
+                return ALPHA_NUMERIC_WITH_SYMBOL;
+            case EMAIL:
+                return EMAIL;
+            case IP:
+                return IP;
+            default:
+                return null;
+        }
+    }
+
+    @NonNull
+    static String getRegex(@NonNull final ValidationType validationType) {
+        switch (validationType) {
+            case ALPHA:
+                return REGEX_ALPHA;
+            case ALPHA_WITH_SYMBOL:
+                return REGEX_ALPHA_WITH_SYMBOL;
+            case NUMERIC:
+                return REGEX_NUMERIC;
+            case NUMERIC_WITH_SYMBOL:
+                return REGEX_NUMERIC_WITH_SYMBOL;
+            case ALPHA_NUMERIC:
+                return REGEX_ALPHA_NUMERIC;
+            case ALPHA_NUMERIC_WITH_SYMBOL:
+                return REGEX_ALPHA_NUMERIC_WITH_SYMBOL;
+            case EMAIL:
+                return REGEX_EMAIL;
+            case IP:
+                return REGEX_IP;
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Matches one or more characters, every one of which must belong to the class. Membership is
+     * a single lookup in a 128 bit table for ASCII, and in a bitset of the Basic Multilingual
+     * Plane, only allocated for classes reaching beyond ASCII, for the other characters.
+     * Characters outside the BMP are seen as their surrogates, which belong to no class unless
+     * listed in it.
+     */
+    static final class CharClassMatcher implements TextMatcher {
+
+        private static final int BMP_WORDS = 0x10000 >>> 6;
+
+        private final long asciiLow;
+        private final long asciiHigh;
+        @Nullable
+        private final long[] bmp;
+
+        private CharClassMatcher(@NonNull final int[] ranges) {
+            // the ranges are sorted, so the class is ASCII only if its last range is
+            boolean isAscii = ranges.length == 0 || ranges[ranges.length - 1] < 0x80;
+            long[] words = new long[isAscii ? 2 : BMP_WORDS];
+            for (int i = 0; i < ranges.length; i += 2)
+                for (int c = ranges[i], last = Math.min(ranges[i + 1], 0xFFFF); c <= last; c++)
+                    words[c >>> 6] |= 1L << c;
+
+            asciiLow = words[0];
+            asciiHigh = words[1];
+            bmp = isAscii ? null : words;
+        }
+
+        /**
+         * @param characterClass a single character class in the regex syntax, e.g.
+         *                       {@code [0-9a-fA-F]} or {@code [\p{Alpha}_]}
+         * @return the matcher of the class, or null if the class uses constructs outside the
+         * subset of {@link LinearRegex}
+         */
+        @Nullable
+        static CharClassMatcher compile(@NonNull final String characterClass) {
+            int[] ranges = LinearRegex.parseCharacterClass(characterClass);
+            return ranges != null ? new CharClassMatcher(ranges) : null;
+        }
+
+        boolean isAllowed(final char c) {
+            // shifts of a long only use the low 6 bits of the distance
+            if (c < 0x40)
+                return (asciiLow & (1L << c)) != 0;
+            if (c < 0x80)
+                return (asciiHigh & (1L << c)) != 0;
+            return bmp != null && (bmp[c >>> 6] & (1L << c)) != 0;
+        }
+
+        /**
+         * @return number of characters in [start, end) of the text not allowed by this class
+         */
+        int countDisallowed(@NonNull final CharSequence text, final int start, final int end) {
+            int count = 0;
+            for (int i = start; i < end; i++)
+                if (!isAllowed(text.charAt(i)))
+                    count++;
+
+            return count;
+        }
+
+        @Override
+        public boolean matches(@NonNull final CharSequence text) {
+            final int length = text.length();
+            if (length == 0)
+                return false;
+
+            for (int i = 0; i < length; i++)
+                if (!isAllowed(text.charAt(i)))
+                    return false;
+
+            return true;
+        }
+    }
+
+    /* POSIX classes as defined by java.util.regex, which are US-ASCII only */
+
+    static boolean isAlpha(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isGraph(char c) {
+        return c >= '!' && c <= '~';
+    }
+
+    static boolean isPunct(char c) {
+        return isGraph(c) && !isAlpha(c) && !isDigit(c);
+    }
+
+    /**
+     * Single pass equivalent of {@link #REGEX_EMAIL}: dot separated local part segments of
+     * [_A-Za-z0-9-], an '@', and at least two dot separated [A-Za-z0-9] domain labels of which
+     * the last one has two or more letters only.
+     */
+    static boolean matchesEmail(@NonNull final CharSequence text) {
+        final int length = text.length();
+        int i = 0;
+
+        // local part
+        boolean segmentEmpty = true;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '@')
+                break;
+
+            if (c == '.') {
+                if (segmentEmpty)
+                    return false;
+                segmentEmpty = true;
+            } else if (isAlpha(c) || isDigit(c) || c == '_' || c == '-') {
+                segmentEmpty = false;
+            } else {
+                return false;
+            }
+        }
+
+        if (i == length || segmentEmpty)
+            return false;
+
+        // domain part
+        int labels = 0;
+        int labelLength = 0;
+        boolean labelAlpha = true;
+        for (i++; i < length; i++) {
+            char c = text.charAt(i);
+
+            if (c == '.') {
+                if (labelLength == 0)
+                    return false;
+                labels++;
+                labelLength = 0;
+                labelAlpha = true;
+            } else if (isAlpha(c)) {
+                labelLength++;
+            } else if (isDigit(c)) {
+                labelLength++;
+                labelAlpha = false;
+            } else {
+                return false;
+            }
+        }
+
+        return labels >= 1 && labelLength >= 2 && labelAlpha;
+    }
+
+    /**
+     * Single pass equivalent of {@link #REGEX_IP}: four dot separated octets of one to three
+     * digits each, with a value not above 255.
+     */
+    static boolean matchesIp(@NonNull final CharSequence text) {
+        final int length = text.length();
+        int octets = 0;
+        int digits = 0;
+        int value = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+
+            if (isDigit(c)) {
+                if (++digits > 3)
+                    return false;
+                value = value * 10 + (c - '0');
+            } else if (c == '.') {
+                if (digits == 0 || value > 255 || ++octets > 3)
+                    return false;
+                digits = 0;
+                value = 0;
+            } else {
+                return false;
+            }
+        }
+
+        return octets == 3 && digits > 0 && value <= 255;
+    }
+}
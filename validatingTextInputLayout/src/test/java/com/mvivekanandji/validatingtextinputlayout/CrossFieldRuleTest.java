@@ -0,0 +1,40 @@
+package com.mvivekanandji.validatingtextinputlayout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the built-in {@link CrossFieldRule}s.
+ */
+public class CrossFieldRuleTest {
+
+    @Test
+    public void matching_comparesContent() {
+        CrossFieldRule rule = CrossFieldRule.matching();
+
+        assertTrue(rule.isSatisfied(new StringBuilder("secret"), new CharSequence[]{"secret"}));
+        assertFalse(rule.isSatisfied("secret", new CharSequence[]{"secreT"}));
+        assertFalse(rule.isSatisfied("secret", new CharSequence[]{"secrets"}));
+    }
+
+    @Test
+    public void requiredIfAnySet_followsDependencies() {
+        CrossFieldRule rule = CrossFieldRule.requiredIfAnySet();
+
+        assertTrue(rule.isSatisfied("", new CharSequence[]{"", ""}));
+        assertFalse(rule.isSatisfied("", new CharSequence[]{"", "x"}));
+        assertTrue(rule.isSatisfied("y", new CharSequence[]{"", "x"}));
+    }
+
+    @Test
+    public void notBefore_usesComparator() {
+        CrossFieldRule rule = CrossFieldRule.notBefore((first, second) ->
+                Integer.compare(Integer.parseInt(first.toString()), Integer.parseInt(second.toString())));
+
+        assertTrue(rule.isSatisfied("20", new CharSequence[]{"9"}));
+        assertTrue(rule.isSatisfied("9", new CharSequence[]{"9"}));
+        assertFalse(rule.isSatisfied("8", new CharSequence[]{"9"}));
+    }
+}
@@ -0,0 +1,180 @@
+package com.mvivekanandji.validatingtextinputlayout;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Differential tests of {@link LinearRegex} against java.util.regex, and of the step budget of
+ * the validationRegex.
+ */
+public class LinearRegexTest {
+
+    static final String[] PATTERNS = {
+            "", "a", "abc", "a*", "a+b", "a?b?c?", "(ab)*", "(a|b)*c", "a|bc|", "(?:a|ab)(c|bcd)",
+            "a{3}", "a{2,}", "a{1,3}b{0,2}", "(a{1,2}){2}", "[a-c]+", "[^a-c]*", "[-a]", "[a-]+", "[\\d.]+",
+            "\\d{3}-\\d{4}", "\\w+@\\w+\\.\\w{2,}", "\\s*\\S+\\s*", "\\D\\W", ".*", "a.c", "^ab$", "a$", "^a|b$",
+            "\\p{Alpha}+", "\\P{Digit}+", "[\\p{Punct}\\p{Digit}]+", "\\p{Graph}*", "\\p{XDigit}{2}",
+            "\\x41\\u0042\\0103", "\\t\\n?", "a*?b", "(a+)+", "(a*)*b", "(a|a)*", "((a|b)(c|d))*",
+            "[_A-Za-z0-9-]+(\\.[_A-Za-z0-9-]+)*@[A-Za-z0-9]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})",
+            ValidationTypeMatchers.REGEX_EMAIL, ValidationTypeMatchers.REGEX_IP, "😀+", "[^😀]",
+    };
+
+    private static final String[] RANDOM_ATOMS = {"a", "b", "[ab]", "[^a]", "\\d", "1", "\\.", ".", "^", "$"};
+    private static final String[] RANDOM_QUANTIFIERS = {"", "", "", "*", "+", "?", "*?", "{1,1}", "{0,2}", "{2}", "{1,}", "{2,3}"};
+    private static final String PATTERN_TEXT_ALPHABET = "ab1.\n";
+
+    private static final String ALPHABET = "abcd019.-@_ \t\n\r\u0085é😀";
+
+    @Test
+    public void match_agreesWithJavaRegex() {
+        Random random = new Random(18);
+
+        for (String regex : PATTERNS) {
+            Pattern pattern = Pattern.compile(regex);
+            LinearRegex linearRegex = LinearRegex.compile(regex);
+            assertNotNull(regex, linearRegex);
+            LinearRegex.State state = linearRegex.newState();
+
+            for (int i = 0; i < 3000; i++) {
+                String text = randomText(random, i % 12);
+                boolean expected = pattern.matcher(text).matches();
+                assertEquals(regex + " on " + escape(text),
+                        expected ? RegexMatcher.MATCH : RegexMatcher.NO_MATCH, linearRegex.match(text, -1, state));
+            }
+        }
+    }
+
+    @Test
+    public void match_agreesWithJavaRegexOnRandomPatterns() {
+        Random random = new Random(1018);
+
+        for (int i = 0; i < 3000; i++) {
+            String regex = randomPattern(random, 0);
+            Pattern pattern = Pattern.compile(regex);
+            LinearRegex linearRegex = LinearRegex.compile(regex);
+            if (linearRegex == null)
+                continue;
+
+            LinearRegex.State state = linearRegex.newState();
+            for (int j = 0; j < 40; j++) {
+                String text = randomPatternText(random);
+                boolean expected = pattern.matcher(text).matches();
+                assertEquals(regex + " on " + escape(text),
+                        expected ? RegexMatcher.MATCH : RegexMatcher.NO_MATCH, linearRegex.match(text, -1, state));
+            }
+        }
+    }
+
+    @Test
+    public void compile_rejectsQuantifiedAnchors() {
+        for (String regex : new String[]{"^+a", "a$*", "^{1,1}(^{1,1}[ab]*){2}", "(a|^b)*", "(?:a$)+", "(^{1,3}(a*?)?){2}[^a]"})
+            assertNull(regex, LinearRegex.compile(regex));
+
+        assertNotNull(LinearRegex.compile("^(ab)*$"));
+        assertNotNull(LinearRegex.compile("^a|b$"));
+    }
+
+    @Test
+    public void compile_rejectsNonRegularConstructs() {
+        for (String regex : new String[]{"(a)\\1", "a(?=b)", "(?i)a", "a*+", "\\bword", "[a-z&&[^x]]", "\\p{L}", "\\Qa\\E"})
+            assertNull(regex, LinearRegex.compile(regex));
+    }
+
+    @Test
+    public void findHazard_flagsCatastrophicConstructs() {
+        assertNotNull(LinearRegex.findHazard("(a+)+b"));
+        assertNotNull(LinearRegex.findHazard("(a*b?)*c"));
+        assertNotNull(LinearRegex.findHazard("(a|ab)*c"));
+        assertNotNull(LinearRegex.findHazard("(a|a)*"));
+        assertNotNull(LinearRegex.findHazard("(\\d|[0-9])+"));
+        assertNotNull(LinearRegex.findHazard("(x\\w+)+y"));
+        assertNull(LinearRegex.findHazard("(\\.[a-z]+)*"));
+        assertNotNull(LinearRegex.findHazard("(a)\\1"));
+
+        assertNull(LinearRegex.findHazard("[a-z]+"));
+        assertNull(LinearRegex.findHazard("(a|b)*c"));
+        assertNull(LinearRegex.findHazard(ValidationTypeMatchers.REGEX_EMAIL));
+        assertNull(LinearRegex.findHazard(ValidationTypeMatchers.REGEX_IP));
+    }
+
+    @Test
+    public void stepBudget_reportsDistinctError() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++)
+            text.append('a');
+        text.append('!');
+
+        ValidationRules linear = ValidationRules.builder()
+                .setValidationRegex("(a+)+b")
+                .setValidationRegexStepBudget(50)
+                .build();
+        assertEquals(ValidationError.REGEX_BUDGET_EXCEEDED, linear.evaluate(text));
+        assertEquals(ValidationError.REGEX, linear.buildUpon().setValidationRegexStepBudget(100_000).build().evaluate(text));
+
+        // outside the linear subset, the budget is enforced on the characters read
+        ValidationRules backtracking = ValidationRules.builder()
+                .setValidationRegex("((a+)+)\\2b")
+                .setValidationRegexStepBudget(100_000)
+                .build();
+        assertEquals(ValidationError.REGEX_BUDGET_EXCEEDED, backtracking.evaluate(text));
+        assertNull(backtracking.evaluate("aaab"));
+        assertEquals("Regex Validation Failed!", backtracking.getErrorText(ValidationError.REGEX_BUDGET_EXCEEDED));
+        // the budget cannot stop java.util.regex on Android, which is reported rather than implied
+        assertTrue(backtracking.getValidationRegexHazard().endsWith("the step budget does not bound it on Android"));
+        assertFalse(linear.getValidationRegexHazard().contains("step budget"));
+    }
+
+    /**
+     * @return a random pattern of the linear subset, anchors included, over the letters a and b
+     */
+    static String randomPattern(Random random, int depth) {
+        StringBuilder pattern = new StringBuilder();
+        for (int i = 0, terms = 1 + random.nextInt(3); i < terms; i++) {
+            if (depth < 2 && random.nextInt(4) == 0)
+                pattern.append(random.nextBoolean() ? "(" : "(?:").append(randomPattern(random, depth + 1)).append(')');
+            else
+                pattern.append(RANDOM_ATOMS[random.nextInt(RANDOM_ATOMS.length)]);
+            pattern.append(RANDOM_QUANTIFIERS[random.nextInt(RANDOM_QUANTIFIERS.length)]);
+        }
+        if (random.nextInt(4) == 0)
+            pattern.append('|').append(randomPattern(random, depth + 1));
+        return pattern.toString();
+    }
+
+    static String randomPatternText(Random random) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0, length = random.nextInt(6); i < length; i++)
+            text.append(PATTERN_TEXT_ALPHABET.charAt(random.nextInt(PATTERN_TEXT_ALPHABET.length())));
+        return text.toString();
+    }
+
+    static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            // keep surrogate pairs whole most of the time, and sometimes leave one unpaired
+            if (Character.isHighSurrogate(c) && random.nextInt(8) != 0)
+                text.append(c).append('\uDE00');
+            else
+                text.append(c);
+        }
+        return text.toString();
+    }
+
+    static String escape(String text) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : text.toCharArray())
+            escaped.append(c >= 0x20 && c < 0x7F ? String.valueOf(c) : String.format("\\u%04x", (int) c));
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.mvivekanandji.validatingtextinputlayout;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of the reuse of the {@link java.util.regex.Matcher}s of {@link RegexMatcher}.
+ */
+public class RegexMatcherTest {
+
+    @Test
+    public void match_doesNotRetainText() throws InterruptedException {
+        assertReleased(new RegexMatcher(Pattern.compile("[a-z]+")));
+        // outside the linear subset, matched by java.util.regex through the budgeted input
+        assertReleased(new RegexMatcher(Pattern.compile("(a)\\1"), 1000));
+    }
+
+    private static void assertReleased(RegexMatcher matcher) throws InterruptedException {
+        StringBuilder text = new StringBuilder("aa");
+        WeakReference<StringBuilder> reference = new WeakReference<>(text);
+        assertEquals(RegexMatcher.MATCH, matcher.match(text));
+
+        text = null;
+        for (int i = 0; i < 20 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+    }
+}
@@ -0,0 +1,413 @@
+package com.mvivekanandji.validatingtextinputlayout;
+
+import android.content.Context;
+import android.os.Parcelable;
+import android.util.SparseArray;
+import android.view.ContextThemeWrapper;
+import android.widget.EditText;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the form validation of {@link TextInputLayoutValidator}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TextInputLayoutValidatorTest {
+
+    private Context context;
+    private FrameLayout form;
+    private RecordingListener listener;
+
+    @Before
+    public void setUp() {
+        context = new ContextThemeWrapper(RuntimeEnvironment.application,
+                com.google.android.material.R.style.Theme_MaterialComponents_Light);
+        form = new FrameLayout(context);
+        listener = new RecordingListener();
+    }
+
+    @Test
+    public void isValid_followsRunningCountOfInvalidFields() {
+        ValidatingTextInputLayout first = addRequiredField(null);
+        ValidatingTextInputLayout second = addRequiredField("ok");
+        addField(ValidationRules.builder().build(), null);
+        TextInputLayoutValidator validator = new TextInputLayoutValidator(form, listener);
+
+        // fields with rules count as invalid until validated, fields without never do
+        assertFalse(validator.isValid());
+        assertSame(first, validator.getFirstInvalidLayout());
+
+        validator.validateSilently();
+        assertFalse(validator.isValid());
+        assertSame(first, validator.getFirstInvalidLayout());
+
+        first.getEditText().setText("fixed");
+        assertTrue(validator.isValid());
+        assertNull(validator.getFirstInvalidLayout());
+
+        second.getEditText().setText("");
+        first.getEditText().setText("");
+        assertFalse(validator.isValid());
+        assertSame(first, validator.getFirstInvalidLayout());
+
+        // an unchanged result must not be counted twice
+        first.getEditText().setText("");
+        second.getEditText().setText("ok");
+        assertFalse(validator.isValid());
+        first.getEditText().setText("fixed");
+        assertTrue(validator.isValid());
+
+        first.getEditText().setText("");
+        validator.unregister(first);
+        assertTrue(validator.isValid());
+        assertTrue(listener.errorLayouts.isEmpty());
+    }
+
+    @Test
+    public void validate_skipsFieldsUnchangedSinceLastValidation() {
+        ValidatingTextInputLayout first = addRequiredField("ok");
+        ValidatingTextInputLayout second = addField(ValidationRules.builder().setMinLength(3).build(), "abcd");
+        TextInputLayoutValidator validator = new TextInputLayoutValidator(form, listener);
+        RecordingMetricsListener metrics = new RecordingMetricsListener();
+        validator.setMetricsListener(metrics);
+
+        validator.validate();
+        assertEquals(Arrays.asList(false, false), metrics.takeCachedFields());
+        int ruleEvaluationCount = metrics.ruleEvaluationCount;
+
+        validator.validate();
+        assertEquals(Arrays.asList(true, true), metrics.takeCachedFields());
+        assertEquals(ruleEvaluationCount, metrics.ruleEvaluationCount);
+
+        // the edit is evaluated once by the text watcher, not again by the validation
+        first.getEditText().setText("edited");
+        metrics.takeCachedFields();
+        ruleEvaluationCount = metrics.ruleEvaluationCount;
+        validator.validate();
+        assertEquals(Arrays.asList(true, true), metrics.takeCachedFields());
+        assertEquals(ruleEvaluationCount, metrics.ruleEvaluationCount);
+
+        second.setValidationRules(ValidationRules.builder().setMinLength(5).build());
+        validator.validate();
+        assertEquals(Arrays.asList(true, false), metrics.takeCachedFields());
+        assertSame(second, validator.getFirstInvalidLayout());
+
+        validator.validate(true);
+        assertEquals(Arrays.asList(false, false), metrics.takeCachedFields());
+    }
+
+    @Test
+    public void unregister_shiftsFlagsOfFollowingFields() {
+        ValidatingTextInputLayout first = addRequiredField(null);
+        addRequiredField("ok");
+        ValidatingTextInputLayout third = addRequiredField(null);
+        ValidatingTextInputLayout fourth = addRequiredField("ok");
+        TextInputLayoutValidator validator = new TextInputLayoutValidator(form, listener);
+        RecordingMetricsListener metrics = new RecordingMetricsListener();
+        validator.setMetricsListener(metrics);
+        validator.validate();
+        metrics.takeCachedFields();
+
+        validator.unregister(first);
+        assertEquals(3, validator.getFieldCount());
+        assertFalse(validator.isValid());
+        assertSame(third, validator.getFirstInvalidLayout());
+
+        validator.validate();
+        assertEquals(Arrays.asList(true, true, true), metrics.takeCachedFields());
+        assertEquals(Arrays.asList(third), listener.errorLayouts);
+
+        validator.unregister(third);
+        assertTrue(validator.isValid());
+        assertNull(validator.getFirstInvalidLayout());
+        validator.validate();
+        assertEquals(Arrays.asList(true, true), metrics.takeCachedFields());
+
+        fourth.getEditText().setText("");
+        assertFalse(validator.isValid());
+        assertSame(fourth, validator.getFirstInvalidLayout());
+    }
+
+    @Test
+    public void crossFieldRule_isCheckedAgainWhenDependencyChanges() {
+        ValidatingTextInputLayout password = addRequiredField("secret");
+        ValidatingTextInputLayout confirm = addRequiredField("secreT");
+        TextInputLayoutValidator validator = new TextInputLayoutValidator(form, listener);
+        validator.addCrossFieldRule(confirm, CrossFieldRule.matching(), "mismatch", password);
+
+        validator.validate();
+        assertEquals(Arrays.asList(confirm), listener.errorLayouts);
+        assertEquals(Arrays.asList(ValidationError.CROSS_FIELD), listener.validationErrors);
+        assertEquals("mismatch", confirm.getError().toString());
+
+        password.getEditText().setText("secreT");
+        assertTrue(validator.isValid());
+        assertTrue(validator.check());
+        assertNull(confirm.getError());
+
+        password.getEditText().setText("other");
+        assertFalse(validator.isValid());
+        assertSame(confirm, validator.getFirstInvalidLayout());
+        assertEquals("mismatch", confirm.getError().toString());
+
+        // the rule is left unchecked while the dependency fails its own rules
+        password.getEditText().setText("");
+        assertSame(password, validator.getFirstInvalidLayout());
+        assertNull(confirm.getError());
+
+        validator.removeCrossFieldRules(confirm);
+        password.getEditText().setText("other");
+        assertTrue(validator.isValid());
+    }
+
+    @Test
+    public void restoredState_bringsBackValidationResult() {
+        ValidatingTextInputLayout saved = addIdentifiedField(ValidationRules.builder().setMinLength(3).build());
+        saved.getEditText().setText("ab");
+        TextInputLayoutValidator validator = new TextInputLayoutValidator(form, listener);
+        validator.validate();
+        SparseArray<Parcelable> container = new SparseArray<>();
+        form.saveHierarchyState(container);
+
+        // restored once the validator exists, e.g. in an activity
+        form = new FrameLayout(context);
+        ValidatingTextInputLayout restored = addIdentifiedField(ValidationRules.builder().setMinLength(3).build());
+        validator = new TextInputLayoutValidator(form, listener);
+        RecordingMetricsListener metrics = new RecordingMetricsListener();
+        validator.setMetricsListener(metrics);
+        form.restoreHierarchyState(container);
+        assertEquals("ab", restored.getEditText().getText().toString());
+        assertEquals(0, metrics.ruleEvaluationCount);
+        assertFalse(validator.isValid());
+        validator.validate();
+        assertEquals(Arrays.asList(true), metrics.takeCachedFields());
+        assertEquals(Arrays.asList(restored), listener.errorLayouts);
+
+        // restored before the validator exists, e.g. in a fragment
+        form = new FrameLayout(context);
+        restored = addIdentifiedField(ValidationRules.builder().setMinLength(3).build());
+        form.restoreHierarchyState(container);
+        validator = new TextInputLayoutValidator(form, listener);
+        metrics = new RecordingMetricsListener();
+        validator.setMetricsListener(metrics);
+        assertFalse(validator.isValid());
+        validator.validate();
+        assertEquals(Arrays.asList(true), metrics.takeCachedFields());
+        assertSame(restored, validator.getFirstInvalidLayout());
+
+        // a result computed for other rules is not taken back
+        form = new FrameLayout(context);
+        addIdentifiedField(ValidationRules.builder().setMinLength(2).build());
+        form.restoreHierarchyState(container);
+        validator = new TextInputLayoutValidator(form, listener);
+        metrics = new RecordingMetricsListener();
+        validator.setMetricsListener(metrics);
+        validator.validate();
+        assertEquals(Arrays.asList(false), metrics.takeCachedFields());
+        assertTrue(validator.isValid());
+    }
+
+    @Test
+    public void validationGroups_keepCountsOfNestedFields() {
+        ValidatingTextInputLayout street = addRequiredField(null);
+        street.setValidationGroup("checkout/address");
+        ValidatingTextInputLayout city = addRequiredField("ok");
+        city.setValidationGroup("checkout/address");
+        ValidatingTextInputLayout card = addRequiredField(null);
+        card.setValidationGroup("checkout");
+        addRequiredField("ok");
+        TextInputLayoutValidator validator = new TextInputLayoutValidator(form, listener);
+        RecordingListener addressListener = new RecordingListener();
+        validator.setGroupListener("checkout/address", addressListener);
+
+        assertEquals(4, validator.getFieldCount());
+        assertEquals(3, validator.getFieldCount("checkout"));
+        assertEquals(2, validator.getFieldCount("checkout/address"));
+
+        validator.validate("checkout/address");
+        assertEquals(Arrays.asList(street), addressListener.errorLayouts);
+        assertFalse(validator.isValid("checkout/address"));
+        assertFalse(validator.isValid("checkout"));
+
+        street.getEditText().setText("fixed");
+        assertTrue(validator.isValid("checkout/address"));
+        assertFalse(validator.isValid("checkout"));
+
+        card.setValidationGroup(null);
+        assertEquals(2, validator.getFieldCount("checkout"));
+        assertTrue(validator.isValid("checkout"));
+        assertFalse(validator.isValid());
+
+        validator.unregister(city);
+        assertEquals(1, validator.getFieldCount("checkout/address"));
+        assertEquals(1, validator.getFieldCount("checkout"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void isValid_unknownGroup_throws() {
+        addRequiredField(null).setValidationGroup("checkout");
+        new TextInputLayoutValidator(form, listener).isValid("checkout/address");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getFieldCount_unknownGroup_throws() {
+        addRequiredField(null).setValidationGroup("checkout");
+        new TextInputLayoutValidator(form, listener).getFieldCount("check");
+    }
+
+    @Test
+    public void validate_maxErrors_stopsAfterThatManyErrors() {
+        ValidatingTextInputLayout first = addRequiredField(null);
+        ValidatingTextInputLayout valid = addRequiredField("ok");
+        ValidatingTextInputLayout second = addRequiredField(null);
+        ValidatingTextInputLayout third = addRequiredField(null);
+        TextInputLayoutValidator validator = new TextInputLayoutValidator(form, listener);
+        RecordingMetricsListener metrics = new RecordingMetricsListener();
+        validator.setMetricsListener(metrics);
+
+        validator.validate(true, 1);
+        assertEquals(Arrays.asList(first), listener.errorLayouts);
+        assertEquals(Arrays.asList(ValidationError.REQUIRED), listener.validationErrors);
+        assertEquals(1, metrics.validatedFieldCount);
+        assertEquals(1, metrics.errorCount);
+        assertSame(first, validator.getFirstInvalidLayout());
+        assertEquals(1, first.getErrorUpdateCount());
+        assertEquals(0, second.getErrorUpdateCount());
+        assertEquals(0, third.getErrorUpdateCount());
+
+        validator.validate(true, 2);
+        assertEquals(Arrays.asList(first, second), listener.errorLayouts);
+        assertEquals(3, metrics.validatedFieldCount);
+        assertEquals(2, metrics.errorCount);
+        assertEquals(1, second.getErrorUpdateCount());
+        assertEquals(0, third.getErrorUpdateCount());
+
+        validator.validate(true, TextInputLayoutValidator.ALL_ERRORS);
+        assertEquals(Arrays.asList(first, second, third), listener.errorLayouts);
+        assertEquals(4, metrics.validatedFieldCount);
+        assertEquals(3, metrics.errorCount);
+        assertEquals(0, valid.getErrorUpdateCount());
+        assertEquals(1, third.getErrorUpdateCount());
+    }
+
+    @Test
+    public void validate_maxErrors_validatesEverythingWhenFewerErrors() {
+        addRequiredField("ok");
+        ValidatingTextInputLayout invalid = addRequiredField(null);
+        addRequiredField("ok");
+        TextInputLayoutValidator validator = new TextInputLayoutValidator(form, listener);
+        RecordingMetricsListener metrics = new RecordingMetricsListener();
+        validator.setMetricsListener(metrics);
+
+        validator.validateSilently(true, 2);
+        assertEquals(Arrays.asList(invalid), listener.errorLayouts);
+        assertEquals(3, metrics.validatedFieldCount);
+        assertEquals(0, invalid.getErrorUpdateCount());
+        assertFalse(validator.isValid());
+
+        invalid.getEditText().setText("fixed");
+        validator.validateSilently(true, 1);
+        assertTrue(listener.errorLayouts.isEmpty());
+        assertTrue(validator.isValid());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void validate_maxErrors_rejectsZero() {
+        addRequiredField(null);
+        new TextInputLayoutValidator(form, listener).validate(true, 0);
+    }
+
+    private ValidatingTextInputLayout addRequiredField(final String text) {
+        return addField(ValidationRules.builder().setRequired(true).build(), text);
+    }
+
+    private ValidatingTextInputLayout addField(final ValidationRules rules, final String text) {
+        ValidatingTextInputLayout inputLayout = new ValidatingTextInputLayout(context);
+        inputLayout.addView(new EditText(context));
+        inputLayout.setValidationRules(rules);
+        if (text != null)
+            inputLayout.getEditText().setText(text);
+        form.addView(inputLayout);
+        return inputLayout;
+    }
+
+    private ValidatingTextInputLayout addIdentifiedField(final ValidationRules rules) {
+        ValidatingTextInputLayout inputLayout = addField(rules, null);
+        // only the views with an id save their state
+        inputLayout.setId(1);
+        inputLayout.getEditText().setId(2);
+        return inputLayout;
+    }
+
+    private static class RecordingListener implements TextInputLayoutValidator.ValidatorListener {
+        List<ValidatingTextInputLayout> errorLayouts = new ArrayList<>();
+        List<ValidationError> validationErrors = new ArrayList<>();
+        @Override
+        public void onValidateErrors(@NonNull final List<ValidatingTextInputLayout> errorLayoutList,
+                                     @NonNull final List<ValidationError> validationErrorList) {
+            errorLayouts = new ArrayList<>(errorLayoutList);
+            validationErrors = new ArrayList<>(validationErrorList);
+        }
+
+        @Override
+        public void onSuccess() {
+            errorLayouts = new ArrayList<>();
+            validationErrors = new ArrayList<>();
+        }
+    }
+
+    private static class RecordingMetricsListener implements ValidationMetricsListener {
+        int validatedFieldCount;
+        int errorCount;
+        int ruleEvaluationCount;
+        List<Boolean> cachedFields = new ArrayList<>();
+
+        @Override
+        public void onRuleEvaluated(@NonNull final ValidatingTextInputLayout inputLayout,
+                                    @NonNull final ValidationError rule,
+                                    final boolean passed,
+                                    final long durationNanos) {
+            ruleEvaluationCount++;
+        }
+
+        @Override
+        public void onFieldValidated(@NonNull final ValidatingTextInputLayout inputLayout,
+                                     @Nullable final ValidationError validationError,
+                                     final boolean isCached,
+                                     final long durationNanos) {
+            cachedFields.add(isCached);
+        }
+
+        @Override
+        public void onFormValidated(final int validatedFieldCount, final int errorCount, final long durationNanos) {
+            this.validatedFieldCount = validatedFieldCount;
+            this.errorCount = errorCount;
+        }
+
+        List<Boolean> takeCachedFields() {
+            List<Boolean> taken = cachedFields;
+            cachedFields = new ArrayList<>();
+            return taken;
+        }
+    }
+}
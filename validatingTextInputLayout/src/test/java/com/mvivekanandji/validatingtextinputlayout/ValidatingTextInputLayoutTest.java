@@ -0,0 +1,86 @@
+package com.mvivekanandji.validatingtextinputlayout;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.widget.EditText;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the error UI updates of {@link ValidatingTextInputLayout}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ValidatingTextInputLayoutTest {
+
+    private ValidatingTextInputLayout inputLayout;
+    private TextInputLayoutValidator validator;
+
+    @Before
+    public void setUp() {
+        Context context = new ContextThemeWrapper(RuntimeEnvironment.application,
+                com.google.android.material.R.style.Theme_MaterialComponents_Light);
+        FrameLayout form = new FrameLayout(context);
+        inputLayout = new ValidatingTextInputLayout(context);
+        inputLayout.addView(new EditText(context));
+        inputLayout.setValidationRules(ValidationRules.builder()
+                .setRequired(true)
+                .setRequiredErrorText("required")
+                .setMinLength(3)
+                .setMinLengthErrorText("too short")
+                .build());
+        form.addView(inputLayout);
+        validator = new TextInputLayoutValidator(form, new TextInputLayoutValidator.ValidatorListener() {
+        });
+    }
+
+    @Test
+    public void validate_sameResult_leavesErrorUiUntouched() {
+        validator.validate();
+        assertEquals(1, inputLayout.getErrorUpdateCount());
+        assertEquals("required", inputLayout.getError().toString());
+
+        validator.validate(true);
+        validator.validate(true);
+        assertEquals(1, inputLayout.getErrorUpdateCount());
+    }
+
+    @Test
+    public void validate_changedResult_updatesErrorUiOnce() {
+        validator.validate();
+        int updateCount = inputLayout.getErrorUpdateCount();
+
+        inputLayout.getEditText().setText("ab");
+        validator.validate(true);
+        assertEquals(updateCount + 1, inputLayout.getErrorUpdateCount());
+        assertEquals("too short", inputLayout.getError().toString());
+
+        inputLayout.getEditText().setText("abc");
+        validator.validate(true);
+        validator.validate(true);
+        assertEquals(updateCount + 2, inputLayout.getErrorUpdateCount());
+        assertFalse(inputLayout.isErrorEnabled());
+        assertNull(inputLayout.getError());
+    }
+
+    @Test
+    public void validateSilently_neverTouchesErrorUi() {
+        validator.validateSilently(true);
+        assertEquals(0, inputLayout.getErrorUpdateCount());
+        assertFalse(validator.isValid());
+
+        inputLayout.getEditText().setText("abc");
+        validator.validateSilently(true);
+        assertTrue(validator.isValid());
+        assertEquals(0, inputLayout.getErrorUpdateCount());
+    }
+}
@@ -0,0 +1,108 @@
+package com.mvivekanandji.validatingtextinputlayout;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+import com.mvivekanandji.validatingtextinputlayout.ValidatingTextInputLayout.ValidationType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the rule chain and the batch API of {@link ValidationEngine}.
+ */
+public class ValidationEngineTest {
+
+    private static final ValidationEngine ENGINE = ValidationEngine.builder()
+            .addField("name", ValidationRules.builder()
+                    .setRequired(true)
+                    .setMaxLength(8)
+                    .setValidationType(ValidationType.ALPHA)
+                    .build())
+            .addField("pin", ValidationRules.builder()
+                    .setMinLength(4)
+                    .setValidationRegex("[0-9]{4,6}")
+                    .build())
+            .build();
+
+    @Test
+    public void evaluate_reportsFirstFailingRule() {
+        ValidationRules rules = ValidationRules.builder()
+                .setRequired(true)
+                .setMinLength(3)
+                .setValidationRegex("a+")
+                .setValidationType(ValidationType.NUMERIC)
+                .build();
+
+        assertEquals(ValidationError.REQUIRED, ValidationEngine.evaluate(rules, ""));
+        assertEquals(ValidationError.MIN_LENGTH, ValidationEngine.evaluate(rules, "aa"));
+        assertEquals(ValidationError.REGEX, ValidationEngine.evaluate(rules, "abc"));
+        assertEquals(ValidationError.VALIDATION_TYPE, ValidationEngine.evaluate(rules, "aaa"));
+    }
+
+    @Test
+    public void evaluateAll_reportsEveryFailingRule() {
+        ValidationRules rules = ValidationRules.builder()
+                .setRequired(true)
+                .setMinLength(3)
+                .setValidationRegex("a+")
+                .setValidationType(ValidationType.NUMERIC)
+                .build();
+
+        assertEquals(EnumSet.of(ValidationError.REQUIRED, ValidationError.MIN_LENGTH, ValidationError.REGEX,
+                ValidationError.VALIDATION_TYPE), rules.evaluateAll(""));
+        assertEquals(EnumSet.of(ValidationError.MIN_LENGTH, ValidationError.VALIDATION_TYPE), rules.evaluateAll("aa"));
+        assertEquals(EnumSet.of(ValidationError.MIN_LENGTH, ValidationError.REGEX), rules.evaluateAll("12"));
+        assertEquals(EnumSet.of(ValidationError.VALIDATION_TYPE), rules.evaluateAll("aaa"));
+    }
+
+    @Test
+    public void getFirstError_matchesEvaluate() {
+        ValidationRules rules = ValidationRules.builder()
+                .setMinLength(2)
+                .setMaxLength(4)
+                .setValidationType(ValidationType.ALPHA)
+                .build();
+
+        for (String text : new String[]{"", "a", "ab", "a1", "abcde", "abc12", "1"})
+            assertEquals(ValidationEngine.evaluate(rules, text),
+                    ValidationEngine.getFirstError(ValidationEngine.evaluateAll(rules, text)));
+        assertNull(ValidationEngine.getFirstError(0));
+    }
+
+    @Test
+    public void validate_reportsEveryField() {
+        assertArrayEquals(new ValidationError[]{null, null}, ENGINE.validate(new CharSequence[]{"Ada", "1234"}));
+        assertArrayEquals(new ValidationError[]{ValidationError.REQUIRED, ValidationError.REGEX},
+                ENGINE.validate(new CharSequence[]{null, "12a4"}));
+        assertTrue(ENGINE.isValid(new CharSequence[]{"Ada", "123456"}));
+        assertFalse(ENGINE.isValid(new CharSequence[]{"Ada Lovelace", "123456"}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void validate_rejectsRecordOfWrongSize() {
+        ENGINE.validate(new CharSequence[]{"Ada"});
+    }
+
+    @Test
+    public void validateAll_matchesSequentialValidation() {
+        List<CharSequence[]> records = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+            records.add(new CharSequence[]{i % 7 == 0 ? "" : "Name", String.valueOf(i)});
+
+        List<ValidationError[]> results = ENGINE.validateAll(records);
+
+        assertEquals(records.size(), results.size());
+        for (int i = 0; i < records.size(); i++)
+            assertArrayEquals(ENGINE.validate(records.get(i)), results.get(i));
+        assertNull(results.get(1000)[1]);
+        assertEquals(ValidationError.MIN_LENGTH, results.get(999)[1]);
+    }
+}
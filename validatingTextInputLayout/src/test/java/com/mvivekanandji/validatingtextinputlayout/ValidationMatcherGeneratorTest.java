@@ -0,0 +1,131 @@
+package com.mvivekanandji.validatingtextinputlayout;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * Tests of the automata of {@link LinearRegex#toDfa(int)} and of the sources written by
+ * {@link ValidationMatcherGenerator}.
+ */
+public class ValidationMatcherGeneratorTest {
+
+    private static final String QUANTIFIED_ANCHOR = "(?:^{1,}\\p{Alpha}{0,2}|[^a]{2,3}\\d{1,}1{2}){2,3}";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void dfa_agreesWithJavaRegex() {
+        Random random = new Random(19);
+
+        for (String regex : LinearRegexTest.PATTERNS) {
+            Pattern pattern = Pattern.compile(regex);
+            LinearRegex.Dfa dfa = LinearRegex.compile(regex).toDfa(ValidationMatcherGenerator.MAX_STATES);
+            assertNotNull(regex, dfa);
+
+            for (int i = 0; i < 3000; i++) {
+                String text = LinearRegexTest.randomText(random, i % 12);
+                assertEquals(regex + " on " + LinearRegexTest.escape(text), pattern.matcher(text).matches(), dfa.matches(text));
+            }
+        }
+    }
+
+    @Test
+    public void dfa_agreesWithJavaRegexOnRandomPatterns() {
+        Random random = new Random(1019);
+
+        for (int i = 0; i < 3000; i++) {
+            String regex = LinearRegexTest.randomPattern(random, 0);
+            Pattern pattern = Pattern.compile(regex);
+            LinearRegex linearRegex = LinearRegex.compile(regex);
+            LinearRegex.Dfa dfa = linearRegex != null ? linearRegex.toDfa(ValidationMatcherGenerator.MAX_STATES) : null;
+            if (dfa == null)
+                continue;
+
+            for (int j = 0; j < 40; j++) {
+                String text = LinearRegexTest.randomPatternText(random);
+                assertEquals(regex + " on " + LinearRegexTest.escape(text), pattern.matcher(text).matches(), dfa.matches(text));
+            }
+        }
+    }
+
+    @Test
+    public void toDfa_rejectsCharactersAfterEnd() {
+        assertNull(LinearRegex.compile("a$\\n").toDfa(ValidationMatcherGenerator.MAX_STATES));
+        assertNull(LinearRegex.compile("[ab]*a[ab]{12}").toDfa(ValidationMatcherGenerator.MAX_STATES));
+    }
+
+    @Test
+    public void collectRegexes_readsLayoutsAndStyles() throws IOException {
+        File res = temporaryFolder.newFolder("res");
+        write(new File(res, "layout/activity_main.xml"), "<LinearLayout xmlns:app=\"http://schemas.android.com/apk/res-auto\">\n"
+                + "    <ValidatingTextInputLayout app:validationRegex=\"\\\\d{3}\" />\n"
+                + "    <ValidatingTextInputLayout app:validationRegex=\"@string/code_regex\" />\n"
+                + "    <ValidatingTextInputLayout app:validationRegex=\"@{viewModel.regex}\" />\n"
+                + "</LinearLayout>");
+        write(new File(res, "values-v21/styles.xml"), "<resources>\n"
+                + "    <string name=\"code_regex\">\"[A-Z]{2} \\\\d\"</string>\n"
+                + "    <style name=\"Field\"><item name=\"validationRegex\">[a-z]+</item></style>\n"
+                + "</resources>");
+
+        assertEquals(new TreeSet<>(Arrays.asList("\\d{3}", "[A-Z]{2} \\d", "[a-z]+")),
+                ValidationMatcherGenerator.collectRegexes(res));
+    }
+
+    @Test
+    public void generate_writesCompilingMatchers() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+
+        Set<String> regexes = new TreeSet<>(Arrays.asList(ValidationTypeMatchers.REGEX_EMAIL, "^[a-z\"\\\\]+$", "(a)\\1", QUANTIFIED_ANCHOR));
+        File sourceDir = temporaryFolder.newFolder("src");
+        File source = new File(sourceDir, ValidationMatcherGenerator.REGISTRY_SIMPLE_NAME + ".java");
+        write(source, ValidationMatcherGenerator.generate(regexes));
+
+        File classDir = temporaryFolder.newFolder("classes");
+        assertEquals(0, compiler.run(null, null, null, "-d", classDir.getPath(),
+                "-cp", System.getProperty("java.class.path"), source.getPath()));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classDir.toURI().toURL()}, getClass().getClassLoader())) {
+            GeneratedMatchers.Registry registry = (GeneratedMatchers.Registry) classLoader
+                    .loadClass(GeneratedMatchers.REGISTRY_CLASS_NAME).getDeclaredConstructor().newInstance();
+
+            TextMatcher email = registry.getMatcher(ValidationTypeMatchers.REGEX_EMAIL);
+            assertEquals(true, email.matches("first.last@example.com"));
+            assertEquals(false, email.matches("first..last@example.com"));
+            assertEquals(true, registry.getMatcher("^[a-z\"\\\\]+$").matches("a\"\\"));
+            assertNull(registry.getMatcher("(a)\\1"));
+            // no automaton is generated for what the linear matcher leaves to java.util.regex
+            assertNull(registry.getMatcher(QUANTIFIED_ANCHOR));
+            assertEquals(false, Pattern.matches(QUANTIFIED_ANCHOR, "b"));
+            assertNull(registry.getMatcher("[a-z]"));
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), Collections.singletonList(content), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,92 @@
+package com.mvivekanandji.validatingtextinputlayout;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.widget.EditText;
+
+import com.mvivekanandji.validatingtextinputlayout.TextInputLayoutValidator.ValidationError;
+import com.mvivekanandji.validatingtextinputlayout.ValidationMetricsRecorder.Histogram;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of the histograms of {@link ValidationMetricsRecorder}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ValidationMetricsRecorderTest {
+
+    @Test
+    public void histogram_countsDurationsInPowerOfTwoBuckets() {
+        Histogram histogram = new Histogram();
+        histogram.record(0, false);
+        histogram.record(1, false);
+        histogram.record(1500, true);
+        histogram.record(2047, false);
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(1, histogram.getFailureCount());
+        assertEquals(3548, histogram.getTotalNanos());
+        assertEquals(2047, histogram.getMaxNanos());
+        assertEquals(2, histogram.getBucketCount(0));
+        assertEquals(2, histogram.getBucketCount(10));
+    }
+
+    @Test
+    public void histogram_reportsPercentileBucketBound() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentileNanos(50));
+
+        for (int i = 0; i < 99; i++)
+            histogram.record(100, false);
+        histogram.record(1_000_000, false);
+
+        assertEquals(127, histogram.getPercentileNanos(50));
+        assertEquals(127, histogram.getPercentileNanos(99));
+        assertEquals((1 << 20) - 1, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void recorder_keepsLayoutsWithoutIdApart() {
+        Context context = new ContextThemeWrapper(RuntimeEnvironment.application,
+                com.google.android.material.R.style.Theme_MaterialComponents_Light);
+        ValidatingTextInputLayout required = newLayout(context, ValidationRules.builder().setRequired(true).build());
+        ValidatingTextInputLayout numeric = newLayout(context,
+                ValidationRules.builder().setValidationType(ValidatingTextInputLayout.ValidationType.NUMERIC).build());
+
+        ValidationMetricsRecorder recorder = new ValidationMetricsRecorder();
+        recorder.onFieldValidated(required, ValidationError.REQUIRED, false, 10);
+        recorder.onRuleEvaluated(required, ValidationError.REQUIRED, false, 10);
+        recorder.onFieldValidated(numeric, null, false, 20);
+        recorder.onFieldValidated(numeric, ValidationError.VALIDATION_TYPE, false, 30);
+        recorder.onRuleEvaluated(numeric, ValidationError.VALIDATION_TYPE, true, 20);
+        recorder.onRuleEvaluated(numeric, ValidationError.VALIDATION_TYPE, false, 30);
+
+        assertEquals(1, recorder.getFieldHistogram(required).getCount());
+        assertEquals(1, recorder.getFieldHistogram(required).getFailureCount());
+        assertEquals(2, recorder.getFieldHistogram(numeric).getCount());
+        assertEquals(50, recorder.getFieldHistogram(numeric).getTotalNanos());
+
+        assertEquals(1, recorder.getRuleHistogram(required, ValidationError.REQUIRED).getCount());
+        assertNull(recorder.getRuleHistogram(required, ValidationError.VALIDATION_TYPE));
+        assertEquals(2, recorder.getRuleHistogram(numeric, ValidationError.VALIDATION_TYPE).getCount());
+        assertEquals(1, recorder.getRuleHistogram(numeric, ValidationError.VALIDATION_TYPE).getFailureCount());
+        assertEquals(2, recorder.getRuleHistogram(ValidationError.VALIDATION_TYPE).getCount());
+
+        recorder.reset();
+        assertNull(recorder.getFieldHistogram(numeric));
+        assertNull(recorder.getRuleHistogram(numeric, ValidationError.VALIDATION_TYPE));
+    }
+
+    private static ValidatingTextInputLayout newLayout(Context context, ValidationRules rules) {
+        ValidatingTextInputLayout inputLayout = new ValidatingTextInputLayout(context);
+        inputLayout.addView(new EditText(context));
+        inputLayout.setValidationRules(rules);
+        return inputLayout;
+    }
+}
@@ -0,0 +1,71 @@
+package com.mvivekanandji.validatingtextinputlayout;
+
+import com.mvivekanandji.validatingtextinputlayout.ValidatingTextInputLayout.ValidationType;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests of the interning, the hash and the default error texts of {@link ValidationRules}.
+ */
+public class ValidationRulesTest {
+
+    @Test
+    public void intern_sharesEqualRules() {
+        ValidationRules first = ValidationRules.builder()
+                .setRequired(true)
+                .setValidationRegex("[a-z]+")
+                .build()
+                .intern();
+        ValidationRules second = ValidationRules.builder()
+                .setRequired(true)
+                .setValidationRegex("[a-z]+")
+                .build();
+
+        assertEquals(first, second);
+        assertSame(first, second.intern());
+        assertSame(first.getValidationRegexMatcher(), second.intern().getValidationRegexMatcher());
+        assertNotSame(first, first.buildUpon().setValidationRegexErrorText("Lowercase only").build().intern());
+    }
+
+    @Test
+    public void hashCode_isStableAcrossProcesses() {
+        ValidationRules first = ValidationRules.builder()
+                .setMinLength(3)
+                .setValidationRegex("[a-z]+")
+                .setValidationType(ValidationType.NUMERIC)
+                .build();
+        ValidationRules second = ValidationRules.builder()
+                .setValidationType(ValidationType.NUMERIC)
+                .setValidationRegex("[a-z]+")
+                .setMinLength(3)
+                .build();
+
+        // only built from values whose hash does not depend on the process
+        int expected = Arrays.hashCode(new Object[]{false, null, 3, null, -1, null, "[a-z]+", null, -1, "NUMERIC", null, null, false});
+        assertEquals(expected, first.hashCode());
+        assertEquals(expected, second.hashCode());
+    }
+
+    @Test
+    public void defaultErrorTexts_followTheRules() {
+        ValidationRules rules = ValidationRules.builder()
+                .setMinLength(3)
+                .setValidationType(ValidationType.NUMERIC)
+                .build();
+
+        assertEquals("Required*", rules.getRequiredErrorText());
+        assertEquals("Minimum length should be greater than 3", rules.getMinLengthErrorText());
+        assertEquals("NUMERIC Validation Failed!", rules.getValidationTypeErrorText());
+
+        ValidationRules changed = rules.buildUpon().setMinLength(5).setValidationType(ValidationType.ALPHA).build();
+        assertEquals("Minimum length should be greater than 5", changed.getMinLengthErrorText());
+        assertEquals("ALPHA Validation Failed!", changed.getValidationTypeErrorText());
+        assertEquals("Too short", changed.buildUpon().setMinLengthErrorText("Too short").build().getMinLengthErrorText());
+    }
+}
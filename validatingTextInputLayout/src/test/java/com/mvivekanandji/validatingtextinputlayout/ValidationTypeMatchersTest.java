@@ -0,0 +1,108 @@
+package com.mvivekanandji.validatingtextinputlayout;
+
+import com.mvivekanandji.validatingtextinputlayout.ValidatingTextInputLayout.ValidationType;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Differential test of the hand-written {@link ValidationTypeMatchers} against the reference
+ * regular expressions of every {@link ValidationType}.
+ */
+public class ValidationTypeMatchersTest {
+
+    private static final String ALPHABET = "aZm09.@-_ !~/\t\u00e9\u0663\u00a0";
+    private static final String EMAIL_ALPHABET = "ab0Z9._-@@..";
+    private static final String IP_ALPHABET = "0123456789....";
+    private static final int ITERATIONS = 20000;
+
+    private static void assertSameAsRegex(ValidationType validationType, String alphabet, int maxLength) {
+        Pattern pattern = Pattern.compile(ValidationTypeMatchers.getRegex(validationType));
+        TextMatcher matcher = ValidationTypeMatchers.forType(validationType);
+        Random random = new Random(validationType.ordinal());
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            builder.setLength(0);
+            for (int j = 0, length = random.nextInt(maxLength + 1); j < length; j++)
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+
+            String text = builder.toString();
+            assertEquals(validationType + " \"" + text + "\"",
+                    pattern.matcher(text).matches(), matcher.matches(text));
+        }
+    }
+
+    @Test
+    public void charClassTypes_matchRegex() {
+        assertSameAsRegex(ValidationType.ALPHA, ALPHABET, 6);
+        assertSameAsRegex(ValidationType.ALPHA_WITH_SYMBOL, ALPHABET, 6);
+        assertSameAsRegex(ValidationType.NUMERIC, ALPHABET, 6);
+        assertSameAsRegex(ValidationType.NUMERIC_WITH_SYMBOL, ALPHABET, 6);
+        assertSameAsRegex(ValidationType.ALPHA_NUMERIC, ALPHABET, 6);
+        assertSameAsRegex(ValidationType.ALPHA_NUMERIC_WITH_SYMBOL, ALPHABET, 6);
+    }
+
+    @Test
+    public void charClassTypes_matchRegexForEveryChar() {
+        for (ValidationType validationType : ValidationType.values()) {
+            if (validationType == ValidationType.NONE || validationType == ValidationType.EMAIL
+                    || validationType == ValidationType.IP || validationType == ValidationType.CUSTOM)
+                continue;
+
+            Pattern pattern = Pattern.compile(ValidationTypeMatchers.getRegex(validationType));
+            TextMatcher matcher = ValidationTypeMatchers.forType(validationType);
+
+            for (char c = 0; c < 0x3000; c++) {
+                String text = String.valueOf(c);
+                assertEquals(validationType + " U+" + Integer.toHexString(c),
+                        pattern.matcher(text).matches(), matcher.matches(text));
+            }
+        }
+    }
+
+    @Test
+    public void customCharClass_matchesRegexForEveryBmpChar() {
+        for (String characterClass : new String[]{"[0-9a-fA-F]", "[\\u0900-\\u097F]", "[\\p{Alpha}\\u00c0-\\u024f'-]", "[^\\s]"}) {
+            Pattern pattern = Pattern.compile(characterClass + "+");
+            TextMatcher matcher = ValidationRules.builder()
+                    .setValidationType(ValidationType.CUSTOM)
+                    .setValidationCharClass(characterClass)
+                    .build()
+                    .getValidationTypeMatcher();
+
+            for (char c = 0; c < Character.MAX_VALUE; c++) {
+                String text = String.valueOf(c);
+                assertEquals(characterClass + " U+" + Integer.toHexString(c),
+                        pattern.matcher(text).matches(), matcher.matches(text));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void customCharClass_rejectsUnsupportedClass() {
+        ValidationRules.builder().setValidationCharClass("[a-z&&[^x]]");
+    }
+
+    @Test
+    public void email_matchesRegex() {
+        assertSameAsRegex(ValidationType.EMAIL, EMAIL_ALPHABET, 12);
+        assertTrue(ValidationTypeMatchers.EMAIL.matches("first.last@mail.example.com"));
+        assertFalse(ValidationTypeMatchers.EMAIL.matches("first..last@example.com"));
+        assertFalse(ValidationTypeMatchers.EMAIL.matches("first@example.c0m"));
+    }
+
+    @Test
+    public void ip_matchesRegex() {
+        assertSameAsRegex(ValidationType.IP, IP_ALPHABET, 16);
+        assertTrue(ValidationTypeMatchers.IP.matches("255.255.0.09"));
+        assertFalse(ValidationTypeMatchers.IP.matches("256.1.1.1"));
+        assertFalse(ValidationTypeMatchers.IP.matches("1.1.1.1."));
+    }
+}